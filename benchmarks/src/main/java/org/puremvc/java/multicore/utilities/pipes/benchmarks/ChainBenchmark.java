@@ -0,0 +1,81 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Filter;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Pipe;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.TeeMerge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>Deep chain benchmark.</P>
+ *
+ * <P>Measures a write through a linear chain of fittings, either
+ * all Pipes, all Filters, or a mix of Pipes, Filters and TeeMerges
+ * so that the call sites see several fitting classes.</P>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+
+    @Param({"10", "50", "100"})
+    public int depth;
+
+    @Param({"pipe", "filter", "mixed"})
+    public String kind;
+
+    private IPipeFitting head;
+
+    private IPipeMessage message;
+
+    @Setup
+    public void setup() {
+        IPipeFitting next = new Sink();
+        for(int i = depth - 1; i >= 0; i--) {
+            IPipeFitting fitting;
+            switch (kind) {
+                case "pipe":
+                    fitting = new Pipe();
+                    break;
+                case "filter":
+                    fitting = new Filter("filter" + i, null, (message, params) -> message.setHeader(params), i);
+                    break;
+                default:
+                    fitting = i % 3 == 0 ? new Pipe() : i % 3 == 1 ? new Filter("filter" + i) : new TeeMerge();
+            }
+            fitting.connect(next);
+            next = fitting;
+        }
+        head = next;
+        message = new Message(Message.NORMAL);
+    }
+
+    @Benchmark
+    public boolean write() {
+        return head.write(message);
+    }
+}
@@ -0,0 +1,96 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.AsyncPipe;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.ConcurrentQueue;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Pipe;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Queue;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.TeeSplit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>Multi-threaded contention benchmark.</P>
+ *
+ * <P>Several threads write into one shared fitting. Queues are
+ * flushed by each writer every <code>FLUSH_EVERY</code> messages
+ * so that they stay bounded.</P>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ContentionBenchmark {
+
+    private static final int FLUSH_EVERY = 1024;
+
+    @Param({"queue", "concurrent", "async", "tee"})
+    public String fitting;
+
+    private IPipeFitting shared;
+
+    private IPipeMessage message;
+
+    private IPipeMessage flush;
+
+    @Setup
+    public void setup() {
+        switch (fitting) {
+            case "queue":
+                shared = new Queue(new Pipe(new Sink()));
+                break;
+            case "concurrent":
+                shared = new ConcurrentQueue(new Pipe(new Sink()));
+                break;
+            case "async":
+                shared = new AsyncPipe(new Sink(), 4096, AsyncPipe.WAIT_YIELD);
+                break;
+            default:
+                shared = new TeeSplit(new Sink(), new Sink());
+        }
+        message = new Message(Message.NORMAL);
+        flush = new QueueControlMessage(QueueControlMessage.FLUSH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(shared instanceof AsyncPipe) ((AsyncPipe)shared).stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        public int count;
+    }
+
+    @Benchmark
+    public boolean write(Writer writer) {
+        if(++writer.count % FLUSH_EVERY == 0) shared.write(flush);
+        return shared.write(message);
+    }
+}
@@ -0,0 +1,101 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Filter;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Junction;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Pipe;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.PipeListener;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.TeeMerge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>Single hop benchmark.</P>
+ *
+ * <P>Measures the cost of writing one message through a single
+ * fitting of each kind into a terminal <code>Sink</code>.</P>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FittingBenchmark {
+
+    private Pipe pipe;
+
+    private Filter filter;
+
+    private PipeListener listener;
+
+    private TeeMerge teeMerge;
+
+    private Pipe mergeInput;
+
+    private Junction junction;
+
+    private IPipeMessage message;
+
+    private Sink sink;
+
+    @Setup
+    public void setup() {
+        sink = new Sink();
+        message = new Message(Message.NORMAL, null, 0);
+
+        pipe = new Pipe(sink);
+        filter = new Filter("filter", sink, (message, params) -> message.setBody(params), 1);
+        listener = new PipeListener(this, sink::write);
+
+        mergeInput = new Pipe();
+        teeMerge = new TeeMerge(mergeInput);
+        teeMerge.connect(sink);
+
+        junction = new Junction();
+        junction.registerPipe("output", Junction.OUTPUT, new Pipe(sink));
+    }
+
+    @Benchmark
+    public boolean pipe() {
+        return pipe.write(message);
+    }
+
+    @Benchmark
+    public boolean filter() {
+        return filter.write(message);
+    }
+
+    @Benchmark
+    public boolean pipeListener() {
+        return listener.write(message);
+    }
+
+    @Benchmark
+    public boolean teeMerge() {
+        return mergeInput.write(message);
+    }
+
+    @Benchmark
+    public boolean junctionSendMessage() {
+        return junction.sendMessage("output", message);
+    }
+}
@@ -0,0 +1,81 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.ConcurrentQueue;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.Queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>Queue store and flush benchmark.</P>
+ *
+ * <P>Each invocation stores <code>size</code> messages of mixed
+ * priority and then flushes them, in SORT or FIFO mode, through
+ * a <code>Queue</code> or a <code>ConcurrentQueue</code>. The
+ * score is the average time for the whole batch.</P>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    @Param({"sort", "fifo"})
+    public String mode;
+
+    @Param({"queue", "concurrent"})
+    public String queue;
+
+    private IPipeFitting fitting;
+
+    private IPipeMessage[] messages;
+
+    private IPipeMessage flush;
+
+    @Setup
+    public void setup() {
+        Sink sink = new Sink();
+        fitting = queue.equals("queue") ? new Queue(sink) : new ConcurrentQueue(sink);
+        fitting.write(new QueueControlMessage(mode.equals("sort") ? QueueControlMessage.SORT : QueueControlMessage.FIFO));
+
+        messages = new IPipeMessage[size];
+        for(int i = 0; i < size; i++) {
+            messages[i] = new Message(Message.NORMAL, null, i, Message.PRIORITY_HIGH + (i * 7) % Message.PRIORITY_LOW);
+        }
+        flush = new QueueControlMessage(QueueControlMessage.FLUSH);
+    }
+
+    @Benchmark
+    public boolean storeAndFlush() {
+        for(IPipeMessage message : messages) {
+            fitting.write(message);
+        }
+        return fitting.write(flush);
+    }
+}
@@ -0,0 +1,38 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+
+/**
+ * <P>Terminal fitting for benchmarks.</P>
+ *
+ * <P>Keeps the last message and a count, so writes
+ * can't be optimized away, and does nothing else.</P>
+ */
+public class Sink implements IPipeFitting {
+
+    public IPipeMessage last;
+
+    public long count;
+
+    public boolean connect(IPipeFitting output) {
+        return false;
+    }
+
+    public IPipeFitting disconnect() {
+        return null;
+    }
+
+    public boolean write(IPipeMessage message) {
+        last = message;
+        count++;
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.plumbing.TeeSplit;
+
+import java.util.ArrayList;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>TeeSplit fan-out benchmark.</P>
+ *
+ * <P>Measures a write through a <code>TeeSplit</code> to sinks of
+ * varying width. <code>copyingWrite</code> reproduces the write path
+ * TeeSplit used before its outputs became a copy-on-write array, a
+ * Vector copied into a new ArrayList with a boolean holder, so the
+ * two can be compared in one run. Run with <code>-prof gc</code> to
+ * see the allocation rate of each.</P>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeeSplitBenchmark {
+
+    @Param({"2", "8", "16"})
+    public int width;
+
+    private TeeSplit teeSplit;
+
+    private Vector<IPipeFitting> vector;
+
+    private IPipeMessage message;
+
+    @Setup
+    public void setup() {
+        teeSplit = new TeeSplit();
+        vector = new Vector<>();
+        for(int i = 0; i < width; i++) {
+            Sink sink = new Sink();
+            teeSplit.connect(sink);
+            vector.add(sink);
+        }
+        message = new Message(Message.NORMAL);
+    }
+
+    @Benchmark
+    public boolean write() {
+        return teeSplit.write(message);
+    }
+
+    @Benchmark
+    public boolean copyingWrite() {
+        final boolean[] success = {true};
+        ArrayList<IPipeFitting> temp = new ArrayList<>(vector);
+        temp.forEach(output -> {
+            if(!output.write(message)) success[0] = false;
+        });
+        return success[0];
+    }
+}
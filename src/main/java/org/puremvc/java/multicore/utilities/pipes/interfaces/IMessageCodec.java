@@ -0,0 +1,46 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <P>Message Codec Interface.</P>
+ *
+ * <P>Converts <code>IPipeMessage</code>s to and from bytes, so that
+ * fittings can hold them outside the Java heap or write them to
+ * disk. A codec decides which parts of a message it keeps; the
+ * message it decodes need only be equivalent for the recipient.</P>
+ */
+public interface IMessageCodec {
+
+    /**
+     * <P>Encode a message.</P>
+     *
+     * <P>Writes the message into the buffer, starting at its
+     * position. If the buffer is too small, the codec may throw
+     * <code>BufferOverflowException</code> and the caller will
+     * retry with a larger one.</P>
+     *
+     * @param message the message to encode
+     * @param buffer the buffer to write to
+     */
+    void encode(IPipeMessage message, ByteBuffer buffer);
+
+    /**
+     * <P>Decode a message.</P>
+     *
+     * <P>Reads a message from the bytes between the buffer's position
+     * and limit. The buffer is reused afterwards, so the codec must
+     * copy out anything it keeps.</P>
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded message
+     */
+    IPipeMessage decode(ByteBuffer buffer);
+}
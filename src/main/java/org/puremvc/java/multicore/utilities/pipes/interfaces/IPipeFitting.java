@@ -7,6 +7,8 @@
 
 package org.puremvc.java.multicore.utilities.pipes.interfaces;
 
+import java.util.List;
+
 /**
  * <P>Pipe Fitting Interface.</P>
  *
@@ -65,4 +67,87 @@ public interface IPipeFitting {
      * @return true if message was successfuly written
      */
     boolean write(IPipeMessage message);
+
+    /**
+     * <P>Write a batch of messages to the output Pipe Fitting.</P>
+     *
+     * <P>The result is the same as writing each message in
+     * turn, but fittings that handle batches natively can pass
+     * the whole batch along in one call instead of one call per
+     * message. The default implementation writes each message
+     * in turn.</P>
+     *
+     * <P>Fittings must not modify the list they are given.</P>
+     *
+     * @param messages messages to send, in order
+     * @return true if all messages were successfuly written
+     */
+    default boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Offer the message to the output Pipe Fitting.</P>
+     *
+     * <P>Writes the message as <code>write</code> does, but tells
+     * the writer why a message was not accepted. A fitting with
+     * bounded capacity returns <code>WriteOutcome.FULL</code> when
+     * it has no room, and the writer can offer the message again
+     * after being told of demand. A fitting that has already acted
+     * on the message, for instance by filtering it or writing it to
+     * another output, reports <code>WriteOutcome.PARTIAL</code>
+     * instead. The default implementation reports the result of
+     * <code>write</code>.</P>
+     *
+     * @param message message to send
+     * @return the outcome of the write
+     */
+    default WriteOutcome offer(IPipeMessage message) {
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * <P>Lets a fitting find out, before it acts on a message, whether
+     * offering it on would be turned away as FULL. Fittings with bounded
+     * capacity check their own room; other fittings ask the fittings
+     * the message would be written to. The answer can be out of date
+     * by the time the message is offered. The default implementation
+     * returns true.</P>
+     *
+     * @param message message to send
+     * @return false if the message would be turned away as FULL
+     */
+    default boolean hasRoom(IPipeMessage message) {
+        return true;
+    }
+
+    /**
+     * <P>Add a listener to be told of demand.</P>
+     *
+     * <P>Fittings with bounded capacity call the listener when
+     * room becomes available. Other fittings pass the listener on
+     * to the fittings connected to them, including ones connected
+     * later. The listener may be called on any thread and must not
+     * block.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    default void addDemandListener(Runnable listener) {
+
+    }
+
+    /**
+     * <P>Remove a listener added with <code>addDemandListener</code>.</P>
+     *
+     * @param listener the listener to remove
+     */
+    default void removeDemandListener(Runnable listener) {
+
+    }
 }
@@ -16,6 +16,10 @@ package org.puremvc.java.multicore.utilities.pipes.interfaces;
  *
  * <P>Depending on type, messages may be handled  differently by the
  * fittings.</P>
+ *
+ * <P>Fittings dispatch on the message kind, an int code for the
+ * type, rather than on the type string itself. Types that no
+ * fitting acts on have the kind <code>MessageKind.OTHER</code>.</P>
  */
 public interface IPipeMessage {
 
@@ -25,6 +29,11 @@ public interface IPipeMessage {
     // Set the type of this message
     void setType(String type);
 
+    // Get the kind code for the type of this message
+    default int getKind() {
+        return MessageKind.of(getType());
+    }
+
     // Get the priority of this message
     int getPriority();
 
@@ -0,0 +1,47 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.interfaces;
+
+/**
+ * <P>Telemetry Message Interface.</P>
+ *
+ * <P>An <code>IPipeMessage</code> carrying a timestamp and a fixed
+ * number of <code>double</code> and <code>long</code> values, read
+ * and written through primitive accessors so that numeric samples
+ * travel through a pipeline without being boxed.</P>
+ *
+ * <P>Fittings handle telemetry messages like any other message of
+ * their type; filter functions can cast to this interface to read
+ * and modify the values in place.</P>
+ */
+public interface ITelemetryMessage extends IPipeMessage {
+
+    // Get the sample timestamp
+    long getTimestamp();
+
+    // Set the sample timestamp
+    void setTimestamp(long timestamp);
+
+    // Get the number of double values
+    int getDoubleCount();
+
+    // Get a double value
+    double getDouble(int index);
+
+    // Set a double value
+    void setDouble(int index, double value);
+
+    // Get the number of long values
+    int getLongCount();
+
+    // Get a long value
+    long getLong(int index);
+
+    // Set a long value
+    void setLong(int index, long value);
+}
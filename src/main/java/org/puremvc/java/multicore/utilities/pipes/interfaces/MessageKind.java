@@ -0,0 +1,143 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.interfaces;
+
+/**
+ * <P>Message Kinds.</P>
+ *
+ * <P>The message types fittings act on, the int codes they
+ * dispatch on instead of the type string, and the lookup from
+ * type to code. The message classes expose the same types and
+ * codes, such as <code>Message.NORMAL</code> and
+ * <code>QueueControlMessage.KIND_FLUSH</code>.</P>
+ */
+public final class MessageKind {
+
+    /**
+     * <P>Base URI of the message types.</P>
+     */
+    public static final String TYPE_BASE = "http://puremvc.org/namespaces/pipes/messages/";
+
+    /**
+     * <P>Base URI of the filter control message types.</P>
+     */
+    public static final String TYPE_FILTER_BASE = TYPE_BASE + "filter-control/";
+
+    /**
+     * <P>Base URI of the queue control message types.</P>
+     */
+    public static final String TYPE_QUEUE_BASE = TYPE_BASE + "queue/";
+
+    /**
+     * <P>Normal message type, <code>Message.NORMAL</code>.</P>
+     */
+    public static final String TYPE_NORMAL = TYPE_BASE + "normal/";
+
+    /**
+     * <P>Filter message types, as in <code>FilterControlMessage</code>.</P>
+     */
+    public static final String TYPE_SET_PARAMS = TYPE_FILTER_BASE + "setparams";
+
+    public static final String TYPE_SET_FILTER = TYPE_FILTER_BASE + "setfilter";
+
+    public static final String TYPE_BYPASS = TYPE_FILTER_BASE + "bypass";
+
+    public static final String TYPE_FILTER = TYPE_FILTER_BASE + "filter";
+
+    /**
+     * <P>Queue message types, as in <code>QueueControlMessage</code>.</P>
+     */
+    public static final String TYPE_FLUSH = TYPE_QUEUE_BASE + "flush";
+
+    public static final String TYPE_SORT = TYPE_QUEUE_BASE + "sort";
+
+    public static final String TYPE_FIFO = TYPE_QUEUE_BASE + "fifo";
+
+    /**
+     * <P>Kind of message types that no fitting acts on.</P>
+     */
+    public static final int OTHER = 0;
+
+    /**
+     * <P>Kind of Normal messages.</P>
+     */
+    public static final int NORMAL = 1;
+
+    /**
+     * <P>Kind of filter <code>SET_PARAMS</code> messages.</P>
+     */
+    public static final int SET_PARAMS = 2;
+
+    /**
+     * <P>Kind of filter <code>SET_FILTER</code> messages.</P>
+     */
+    public static final int SET_FILTER = 3;
+
+    /**
+     * <P>Kind of filter <code>BYPASS</code> messages.</P>
+     */
+    public static final int BYPASS = 4;
+
+    /**
+     * <P>Kind of filter <code>FILTER</code> messages.</P>
+     */
+    public static final int FILTER = 5;
+
+    /**
+     * <P>Kind of queue <code>FLUSH</code> messages.</P>
+     */
+    public static final int FLUSH = 6;
+
+    /**
+     * <P>Kind of queue <code>SORT</code> messages.</P>
+     */
+    public static final int SORT = 7;
+
+    /**
+     * <P>Kind of queue <code>FIFO</code> messages.</P>
+     */
+    public static final int FIFO = 8;
+
+    private MessageKind() {
+
+    }
+
+    /**
+     * <P>Get the kind code for a message type.</P>
+     *
+     * <P>The kind is looked up once, when the type is set, so
+     * that fittings can route a message with a single integer
+     * compare instead of matching the type string.</P>
+     *
+     * @param type message type
+     * @return kind code, <code>OTHER</code> if no fitting acts on the type
+     */
+    public static int of(String type) {
+        if(type == null) return OTHER;
+        switch (type) {
+            case TYPE_NORMAL:
+                return NORMAL;
+            case TYPE_SET_PARAMS:
+                return SET_PARAMS;
+            case TYPE_SET_FILTER:
+                return SET_FILTER;
+            case TYPE_BYPASS:
+                return BYPASS;
+            case TYPE_FILTER:
+                return FILTER;
+            case TYPE_FLUSH:
+                return FLUSH;
+            case TYPE_SORT:
+                return SORT;
+            case TYPE_FIFO:
+                return FIFO;
+            default:
+                return OTHER;
+        }
+    }
+}
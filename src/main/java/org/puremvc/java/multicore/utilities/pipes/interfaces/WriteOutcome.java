@@ -0,0 +1,90 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.interfaces;
+
+/**
+ * <P>Write Outcome.</P>
+ *
+ * <P>The result of offering a message to an <code>IPipeFitting</code>.
+ * Unlike the boolean returned by <code>write</code>, it tells a
+ * writer whether a message that was not accepted is worth offering
+ * again once the pipeline has room.</P>
+ */
+public enum WriteOutcome {
+
+    /**
+     * The message was accepted by the pipeline.
+     */
+    ACCEPTED,
+
+    /**
+     * The message was dropped or failed, and will not be accepted if offered again.
+     */
+    DROPPED,
+
+    /**
+     * The message was rejected because a fitting is full, and may be accepted later.
+     */
+    FULL,
+
+    /**
+     * The message was rejected because a fitting is full, after other
+     * fittings had already acted on it, and must not be offered again.
+     */
+    PARTIAL;
+
+    /**
+     * <P>Is this the outcome of an accepted message?</P>
+     *
+     * @return true if the message was accepted
+     */
+    public boolean isAccepted() {
+        return this == ACCEPTED;
+    }
+
+    /**
+     * <P>Combine the outcomes of writing one message to several outputs.</P>
+     *
+     * <P>Equal outcomes combine to themselves. If one output was FULL
+     * and another was not, the message has been acted on by part of
+     * the pipeline and the result is PARTIAL. Otherwise DROPPED
+     * outranks ACCEPTED.</P>
+     *
+     * @param other the other outcome
+     * @return the combined outcome
+     */
+    public WriteOutcome combine(WriteOutcome other) {
+        if(this == other) return this;
+        if(this == FULL || this == PARTIAL || other == FULL || other == PARTIAL) return PARTIAL;
+        return DROPPED;
+    }
+
+    /**
+     * <P>Get the outcome to report once a fitting has acted on the message.</P>
+     *
+     * <P>A fitting that changed the message, or wrote it somewhere,
+     * before a fitting further down turned it away as FULL reports
+     * PARTIAL, so the writer does not offer it again and repeat what
+     * was done.</P>
+     *
+     * @return PARTIAL if this is FULL, otherwise this
+     */
+    public WriteOutcome afterAction() {
+        return this == FULL ? PARTIAL : this;
+    }
+
+    /**
+     * <P>Get the outcome for the result of a <code>write</code>.</P>
+     *
+     * @param success the result of the write
+     * @return ACCEPTED if the write succeeded, otherwise DROPPED
+     */
+    public static WriteOutcome of(boolean success) {
+        return success ? ACCEPTED : DROPPED;
+    }
+}
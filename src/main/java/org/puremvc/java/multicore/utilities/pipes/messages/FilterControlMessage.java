@@ -8,6 +8,7 @@
 package org.puremvc.java.multicore.utilities.pipes.messages;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.MessageKind;
 
 import java.util.function.BiConsumer;
 
@@ -41,27 +42,47 @@ public class FilterControlMessage extends Message {
     /**
      * <P>Message type base URI</P>
      */
-    public static final String BASE = Message.BASE + "filter-control/";
+    public static final String BASE = MessageKind.TYPE_FILTER_BASE;
 
     /**
      * <P>Set filter parameters.</P>
      */
-    public static final String SET_PARAMS = BASE + "setparams";
+    public static final String SET_PARAMS = MessageKind.TYPE_SET_PARAMS;
 
     /**
      * <P>Set filter function.</P>
      */
-    public static final String SET_FILTER = BASE + "setfilter";
+    public static final String SET_FILTER = MessageKind.TYPE_SET_FILTER;
 
     /**
      * <P>Toggle to filter bypass mode.</P>
      */
-    public static final String BYPASS = BASE + "bypass";
+    public static final String BYPASS = MessageKind.TYPE_BYPASS;
 
     /**
      * <P>Toggle to filtering mode. (default behavior).</P>
      */
-    public static final String FILTER = BASE + "filter";
+    public static final String FILTER = MessageKind.TYPE_FILTER;
+
+    /**
+     * <P>Kind of <code>SET_PARAMS</code> messages.</P>
+     */
+    public static final int KIND_SET_PARAMS = MessageKind.SET_PARAMS;
+
+    /**
+     * <P>Kind of <code>SET_FILTER</code> messages.</P>
+     */
+    public static final int KIND_SET_FILTER = MessageKind.SET_FILTER;
+
+    /**
+     * <P>Kind of <code>BYPASS</code> messages.</P>
+     */
+    public static final int KIND_BYPASS = MessageKind.BYPASS;
+
+    /**
+     * <P>Kind of <code>FILTER</code> messages.</P>
+     */
+    public static final int KIND_FILTER = MessageKind.FILTER;
 
     protected Object params;
 
@@ -0,0 +1,153 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+import java.util.Arrays;
+
+/**
+ * <P>Message Headers.</P>
+ *
+ * <P>A small, immutable map of typed header values, for use as
+ * the header of an <code>ImmutableMessage</code>. Values are read
+ * and written through a <code>Headers.Key</code>, which carries
+ * the value's type, so no casts are needed by the recipient.</P>
+ *
+ * <P>Headers are held in two parallel arrays and looked up by a
+ * linear scan, which for the handful of entries a message usually
+ * carries is faster than hashing and allocates much less.
+ * <code>with</code> returns a new instance and never modifies
+ * this one, so headers may be shared freely between threads.</P>
+ */
+public final class Headers {
+
+    /**
+     * <P>Headers with no entries.</P>
+     */
+    public static final Headers EMPTY = new Headers(new Key<?>[0], new Object[0]);
+
+    private final Key<?>[] keys;
+
+    private final Object[] values;
+
+    // Constructor
+    private Headers(Key<?>[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * <P>Create a header key.</P>
+     *
+     * @param name header name
+     * @param type header value type
+     * @param <T> header value type
+     * @return the key
+     */
+    public static <T> Key<T> key(String name, Class<T> type) {
+        return new Key<>(name, type);
+    }
+
+    /**
+     * <P>Get a header value.</P>
+     *
+     * @param key header key
+     * @param <T> header value type
+     * @return the value, or null if not set
+     */
+    public <T> T get(Key<T> key) {
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] == key) return key.type.cast(values[i]);
+        }
+        return null;
+    }
+
+    /**
+     * <P>Is a header value set?</P>
+     *
+     * @param key header key
+     * @return true if the header is set
+     */
+    public boolean has(Key<?> key) {
+        for(Key<?> k : keys) {
+            if(k == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * <P>Copy these headers with a value set.</P>
+     *
+     * @param key header key
+     * @param value header value
+     * @param <T> header value type
+     * @return new headers with the value set, replacing any previous value
+     */
+    public <T> Headers with(Key<T> key, T value) {
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] == key) {
+                Object[] copy = values.clone();
+                copy[i] = value;
+                return new Headers(keys, copy);
+            }
+        }
+        Key<?>[] nextKeys = Arrays.copyOf(keys, keys.length + 1);
+        Object[] nextValues = Arrays.copyOf(values, values.length + 1);
+        nextKeys[keys.length] = key;
+        nextValues[values.length] = value;
+        return new Headers(nextKeys, nextValues);
+    }
+
+    /**
+     * <P>Number of headers set.</P>
+     *
+     * @return header count
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * <P>Header Key.</P>
+     *
+     * <P>Keys are compared by identity, so create each one
+     * once, typically as a constant, and share it between
+     * the senders and recipients of a message.</P>
+     *
+     * @param <T> header value type
+     */
+    public static final class Key<T> {
+
+        private final String name;
+
+        private final Class<T> type;
+
+        // Constructor
+        private Key(String name, Class<T> type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * <P>Get the header name.</P>
+         *
+         * @return header name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * <P>Get the header value type.</P>
+         *
+         * @return header value type
+         */
+        public Class<T> getType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.MessageKind;
+
+/**
+ * <P>Immutable Pipe Message.</P>
+ *
+ * <P>A message whose fields can't change once it is created. The
+ * setters throw <code>UnsupportedOperationException</code>; the
+ * <code>with</code> methods return a copy with one field changed
+ * instead. Since no recipient can modify it, a <code>TeeSplit</code>
+ * can deliver the same instance to every branch, and it can be read
+ * from any thread, without copies or locks.</P>
+ *
+ * <P>The header may be any object, but is usually a
+ * <code>Headers</code> map of typed values, which can be read
+ * with <code>getHeader(Headers.Key)</code> and extended with
+ * <code>withHeader(Headers.Key, Object)</code>.</P>
+ *
+ * <P>Filters that modify messages in place don't work with
+ * immutable messages; the failed write is reported by the filter
+ * like any other filter error.</P>
+ */
+public final class ImmutableMessage implements IPipeMessage {
+
+    private final String type;
+
+    private final int kind;
+
+    private final int priority;
+
+    private final Object header;
+
+    private final Object body;
+
+    // Constructor
+    public ImmutableMessage(String type, Object header, Object body, int priority) {
+        this.type = type;
+        this.kind = MessageKind.of(type);
+        this.header = header;
+        this.body = body;
+        this.priority = priority;
+    }
+
+    // Constructor
+    public ImmutableMessage(String type, Object header, Object body) {
+        this(type, header, body, Message.PRIORITY_MED);
+    }
+
+    // Constructor
+    public ImmutableMessage(String type, Object header) {
+        this(type, header, null, Message.PRIORITY_MED);
+    }
+
+    // Constructor
+    public ImmutableMessage(String type) {
+        this(type, null, null, Message.PRIORITY_MED);
+    }
+
+    // Get the type of this message
+    public String getType() {
+        return type;
+    }
+
+    // Messages are immutable
+    public void setType(String type) {
+        throw new UnsupportedOperationException("ImmutableMessage");
+    }
+
+    // Get the kind code for the type of this message
+    public int getKind() {
+        return kind;
+    }
+
+    // Get the priority of this message
+    public int getPriority() {
+        return priority;
+    }
+
+    // Messages are immutable
+    public void setPriority(int priority) {
+        throw new UnsupportedOperationException("ImmutableMessage");
+    }
+
+    // Get the header of this message
+    public Object getHeader() {
+        return header;
+    }
+
+    // Messages are immutable
+    public void setHeader(Object header) {
+        throw new UnsupportedOperationException("ImmutableMessage");
+    }
+
+    // Get the body of this message
+    public Object getBody() {
+        return body;
+    }
+
+    // Messages are immutable
+    public void setBody(Object body) {
+        throw new UnsupportedOperationException("ImmutableMessage");
+    }
+
+    /**
+     * <P>Get the typed headers of this message.</P>
+     *
+     * @return the header if it is a <code>Headers</code> map, otherwise <code>Headers.EMPTY</code>
+     */
+    public Headers getHeaders() {
+        return header instanceof Headers ? (Headers)header : Headers.EMPTY;
+    }
+
+    /**
+     * <P>Get a typed header value.</P>
+     *
+     * @param key header key
+     * @param <T> header value type
+     * @return the value, or null if not set
+     */
+    public <T> T getHeader(Headers.Key<T> key) {
+        return getHeaders().get(key);
+    }
+
+    /**
+     * <P>Copy this message with a different type.</P>
+     *
+     * @param type message type
+     * @return the copy
+     */
+    public ImmutableMessage withType(String type) {
+        return new ImmutableMessage(type, header, body, priority);
+    }
+
+    /**
+     * <P>Copy this message with a different priority.</P>
+     *
+     * @param priority message priority
+     * @return the copy
+     */
+    public ImmutableMessage withPriority(int priority) {
+        return new ImmutableMessage(type, header, body, priority);
+    }
+
+    /**
+     * <P>Copy this message with a different header.</P>
+     *
+     * @param header message header
+     * @return the copy
+     */
+    public ImmutableMessage withHeader(Object header) {
+        return new ImmutableMessage(type, header, body, priority);
+    }
+
+    /**
+     * <P>Copy this message with a typed header value set.</P>
+     *
+     * <P>If the header is not a <code>Headers</code> map,
+     * it is replaced by one holding just this value.</P>
+     *
+     * @param key header key
+     * @param value header value
+     * @param <T> header value type
+     * @return the copy
+     */
+    public <T> ImmutableMessage withHeader(Headers.Key<T> key, T value) {
+        return new ImmutableMessage(type, getHeaders().with(key, value), body, priority);
+    }
+
+    /**
+     * <P>Copy this message with a different body.</P>
+     *
+     * @param body message body
+     * @return the copy
+     */
+    public ImmutableMessage withBody(Object body) {
+        return new ImmutableMessage(type, header, body, priority);
+    }
+}
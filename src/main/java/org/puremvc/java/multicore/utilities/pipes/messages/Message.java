@@ -8,6 +8,10 @@
 package org.puremvc.java.multicore.utilities.pipes.messages;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.MessageKind;
+
+import java.nio.ByteBuffer;
 
 /**
  * <P>Pipe Message.</P>
@@ -33,9 +37,19 @@ public class Message implements IPipeMessage {
     /**
      * <P>Normal Message type.</P>
      */
-    protected static final String BASE = "http://puremvc.org/namespaces/pipes/messages/";
+    protected static final String BASE = MessageKind.TYPE_BASE;
+
+    public static final String NORMAL = MessageKind.TYPE_NORMAL;
 
-    public static final String NORMAL = BASE + "normal/";
+    /**
+     * <P>Kind of message types that no fitting acts on.</P>
+     */
+    public static final int KIND_OTHER = MessageKind.OTHER;
+
+    /**
+     * <P>Kind of Normal messages.</P>
+     */
+    public static final int KIND_NORMAL = MessageKind.NORMAL;
 
     // TBD: Messages in a queue can be sorted by priority.
     protected int priority;
@@ -49,6 +63,9 @@ public class Message implements IPipeMessage {
     // Body of the message is the precious cargo
     protected Object body;
 
+    // Kind code for the type, kept in step with it by setType
+    protected int kind;
+
     // Constructor
     public Message(String type, Object header, Object body, int priority) {
         setType(type);
@@ -80,6 +97,12 @@ public class Message implements IPipeMessage {
     // Set the type of this message
     public void setType(String type) {
         this.type = type;
+        this.kind = MessageKind.of(type);
+    }
+
+    // Get the kind code for the type of this message
+    public int getKind() {
+        return kind;
     }
 
     // Get the priority of this message
@@ -111,4 +134,31 @@ public class Message implements IPipeMessage {
     public void setBody(Object body) {
         this.body = body;
     }
+
+    /**
+     * <P>Estimate the size of a message in bytes.</P>
+     *
+     * <P>A rough figure for size-triggered batching: a fixed
+     * overhead for the message object, plus the length of a
+     * <code>byte[]</code>, <code>ByteBuffer</code> or
+     * <code>CharSequence</code> body, or the values of an
+     * <code>ITelemetryMessage</code>. Other bodies count as a
+     * reference.</P>
+     *
+     * @param message the message
+     * @return estimated size in bytes
+     */
+    public static long estimateSize(IPipeMessage message) {
+        long size = 64;
+        if(message instanceof ITelemetryMessage) {
+            ITelemetryMessage sample = (ITelemetryMessage)message;
+            size += 8L * (sample.getDoubleCount() + sample.getLongCount());
+        }
+        Object body = message.getBody();
+        if(body instanceof byte[]) size += ((byte[])body).length;
+        else if(body instanceof ByteBuffer) size += ((ByteBuffer)body).remaining();
+        else if(body instanceof CharSequence) size += 2L * ((CharSequence)body).length();
+        else if(body != null) size += 8;
+        return size;
+    }
 }
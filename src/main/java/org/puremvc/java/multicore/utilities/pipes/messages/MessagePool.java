@@ -0,0 +1,191 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <P>Message Pool.</P>
+ *
+ * <P>Recycles <code>PooledMessage</code> instances so that sending
+ * a message does not allocate one. Messages are acquired with their
+ * type, header, body and priority, and released once their final
+ * recipient is done with them. A <code>PipeListener</code> can be
+ * told to release messages after delivering them, and any other
+ * consumer can call <code>MessagePool.releaseMessage</code>.</P>
+ *
+ * <P>The pool may be used from any number of threads. Each thread
+ * keeps a small cache of released messages, and what does not fit
+ * there goes to a shared overflow that all threads draw from.
+ * Messages released beyond both capacities are left to the garbage
+ * collector.</P>
+ *
+ * <P>In debug mode, released messages are never handed out again,
+ * so any use of one after its release throws an
+ * <code>IllegalStateException</code>, as does releasing it twice.</P>
+ *
+ * <P>NOTE: A message must be released exactly once, by the last
+ * fitting or consumer to use it. Don't release messages that a
+ * <code>TeeSplit</code> delivers to more than one recipient.</P>
+ */
+public class MessagePool {
+
+    /**
+     * <P>Default per-thread cache capacity.</P>
+     */
+    public static final int DEFAULT_LOCAL_CAPACITY = 256;
+
+    /**
+     * <P>Default shared overflow capacity.</P>
+     */
+    public static final int DEFAULT_SHARED_CAPACITY = 4096;
+
+    protected final int localCapacity;
+
+    protected final int sharedCapacity;
+
+    protected final boolean debug;
+
+    protected final ThreadLocal<ArrayDeque<PooledMessage>> local = ThreadLocal.withInitial(ArrayDeque::new);
+
+    protected final ConcurrentLinkedQueue<PooledMessage> shared = new ConcurrentLinkedQueue<>();
+
+    protected final AtomicInteger sharedSize = new AtomicInteger();
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param localCapacity messages cached per thread
+     * @param sharedCapacity messages kept in the shared overflow
+     * @param debug true to detect use after release
+     */
+    public MessagePool(int localCapacity, int sharedCapacity, boolean debug) {
+        this.localCapacity = localCapacity;
+        this.sharedCapacity = sharedCapacity;
+        this.debug = debug;
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param debug true to detect use after release
+     */
+    public MessagePool(boolean debug) {
+        this(DEFAULT_LOCAL_CAPACITY, DEFAULT_SHARED_CAPACITY, debug);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     */
+    public MessagePool() {
+        this(false);
+    }
+
+    /**
+     * <P>Acquire a message from the pool.</P>
+     *
+     * @param type message type
+     * @param header message header
+     * @param body message body
+     * @param priority message priority
+     * @return a message with the given fields
+     */
+    public PooledMessage acquire(String type, Object header, Object body, int priority) {
+        PooledMessage message = local.get().poll();
+        if(message == null) {
+            message = shared.poll();
+            if(message != null) sharedSize.decrementAndGet();
+        }
+        if(message == null) message = new PooledMessage(this);
+
+        message.released = false;
+        message.setType(type);
+        message.setHeader(header);
+        message.setBody(body);
+        message.setPriority(priority);
+        return message;
+    }
+
+    /**
+     * <P>Acquire a message from the pool.</P>
+     *
+     * @param type message type
+     * @param header message header
+     * @param body message body
+     * @return a message with the given fields and medium priority
+     */
+    public PooledMessage acquire(String type, Object header, Object body) {
+        return acquire(type, header, body, Message.PRIORITY_MED);
+    }
+
+    /**
+     * <P>Acquire a message from the pool.</P>
+     *
+     * @param type message type
+     * @param header message header
+     * @return a message with the given fields and medium priority
+     */
+    public PooledMessage acquire(String type, Object header) {
+        return acquire(type, header, null, Message.PRIORITY_MED);
+    }
+
+    /**
+     * <P>Acquire a message from the pool.</P>
+     *
+     * @param type message type
+     * @return a message of the given type and medium priority
+     */
+    public PooledMessage acquire(String type) {
+        return acquire(type, null, null, Message.PRIORITY_MED);
+    }
+
+    /**
+     * <P>Release a message back to the pool.</P>
+     *
+     * <P>The message fields are cleared so the pool does
+     * not keep its header and body reachable.</P>
+     *
+     * @param message the message to release
+     */
+    public void release(PooledMessage message) {
+        if(message.pool != this) throw new IllegalArgumentException("Message belongs to another pool");
+        if(message.released) {
+            if(debug) throw new IllegalStateException("Message released twice");
+            return;
+        }
+
+        message.setType(null);
+        message.setHeader(null);
+        message.setBody(null);
+        message.setPriority(Message.PRIORITY_MED);
+        message.released = true;
+        if(debug) return;
+
+        ArrayDeque<PooledMessage> cache = local.get();
+        if(cache.size() < localCapacity) {
+            cache.push(message);
+        } else if(sharedSize.incrementAndGet() <= sharedCapacity) {
+            shared.offer(message);
+        } else {
+            sharedSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * <P>Release a message to its pool if it is a pooled message.</P>
+     *
+     * @param message the message to release
+     */
+    public static void releaseMessage(IPipeMessage message) {
+        if(message instanceof PooledMessage) ((PooledMessage)message).release();
+    }
+}
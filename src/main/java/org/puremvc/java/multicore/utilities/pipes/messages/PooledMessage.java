@@ -0,0 +1,110 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+/**
+ * <P>Pooled Message.</P>
+ *
+ * <P>A <code>Message</code> that belongs to a <code>MessagePool</code>.
+ * It is obtained with <code>MessagePool.acquire</code> and given back
+ * with <code>release</code> once its final recipient is done with it,
+ * after which the pool may hand it out again.</P>
+ *
+ * <P>If the pool is in debug mode, using the message after it
+ * has been released, or releasing it twice, throws an
+ * <code>IllegalStateException</code>.</P>
+ */
+public class PooledMessage extends Message {
+
+    protected final MessagePool pool;
+
+    protected boolean released;
+
+    // Constructor
+    protected PooledMessage(MessagePool pool) {
+        super(null);
+        this.pool = pool;
+    }
+
+    /**
+     * <P>Give the message back to its pool.</P>
+     */
+    public void release() {
+        pool.release(this);
+    }
+
+    /**
+     * <P>Has the message been released?</P>
+     *
+     * @return true if released and not yet acquired again
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * <P>Throw if the message is used after release in debug mode.</P>
+     */
+    protected void checkLive() {
+        if(released && pool.debug) throw new IllegalStateException("Message used after release");
+    }
+
+    // Get the type of this message
+    public String getType() {
+        checkLive();
+        return type;
+    }
+
+    // Set the type of this message
+    public void setType(String type) {
+        checkLive();
+        super.setType(type);
+    }
+
+    // Get the kind code for the type of this message
+    public int getKind() {
+        checkLive();
+        return kind;
+    }
+
+    // Get the priority of this message
+    public int getPriority() {
+        checkLive();
+        return priority;
+    }
+
+    // Set the priority of this message
+    public void setPriority(int priority) {
+        checkLive();
+        this.priority = priority;
+    }
+
+    // Get the header of this message
+    public Object getHeader() {
+        checkLive();
+        return header;
+    }
+
+    // Set the header of this message
+    public void setHeader(Object header) {
+        checkLive();
+        this.header = header;
+    }
+
+    // Get the body of this message
+    public Object getBody() {
+        checkLive();
+        return body;
+    }
+
+    // Set the body of this message
+    public void setBody(Object body) {
+        checkLive();
+        this.body = body;
+    }
+}
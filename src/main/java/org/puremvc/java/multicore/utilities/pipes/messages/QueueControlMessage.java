@@ -7,6 +7,8 @@
 
 package org.puremvc.java.multicore.utilities.pipes.messages;
 
+import org.puremvc.java.multicore.utilities.pipes.interfaces.MessageKind;
+
 /**
  * <P>Queue Control Message.</P>
  *
@@ -22,22 +24,37 @@ package org.puremvc.java.multicore.utilities.pipes.messages;
  */
 public class QueueControlMessage extends Message {
 
-    protected static final String Base = Message.BASE + "queue/";
+    protected static final String Base = MessageKind.TYPE_QUEUE_BASE;
 
     /**
      * <P>Flush the queue.</P>
      */
-    public static final String FLUSH = Base + "flush";
+    public static final String FLUSH = MessageKind.TYPE_FLUSH;
 
     /**
      * <P>Toggle to sort-by-priority operation mode.</P>
      */
-    public static final String SORT = Base + "sort";
+    public static final String SORT = MessageKind.TYPE_SORT;
 
     /**
      * <P>Toggle to FIFO operation mode (default behavior).</P>
      */
-    public static final String FIFO = Base + "fifo";
+    public static final String FIFO = MessageKind.TYPE_FIFO;
+
+    /**
+     * <P>Kind of <code>FLUSH</code> messages.</P>
+     */
+    public static final int KIND_FLUSH = MessageKind.FLUSH;
+
+    /**
+     * <P>Kind of <code>SORT</code> messages.</P>
+     */
+    public static final int KIND_SORT = MessageKind.SORT;
+
+    /**
+     * <P>Kind of <code>FIFO</code> messages.</P>
+     */
+    public static final int KIND_FIFO = MessageKind.FIFO;
 
     // Constructor
     public QueueControlMessage(String type) {
@@ -0,0 +1,103 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+
+/**
+ * <P>Telemetry Message.</P>
+ *
+ * <P>A message for numeric samples. It holds a timestamp and a
+ * fixed number of <code>double</code> and <code>long</code> slots
+ * in primitive arrays, so a sample costs one message and its two
+ * arrays rather than a boxed value per field. The slot counts are
+ * fixed when the message is created.</P>
+ *
+ * <P>Telemetry messages are <code>Message.NORMAL</code> messages by
+ * default, so they are filtered, queued and delivered like any
+ * other. The header and body remain available for anything that
+ * isn't numeric.</P>
+ */
+public class TelemetryMessage extends Message implements ITelemetryMessage {
+
+    private static final double[] NO_DOUBLES = new double[0];
+
+    private static final long[] NO_LONGS = new long[0];
+
+    protected long timestamp;
+
+    protected final double[] doubles;
+
+    protected final long[] longs;
+
+    // Constructor
+    public TelemetryMessage(String type, long timestamp, int doubleCount, int longCount) {
+        super(type);
+        this.timestamp = timestamp;
+        this.doubles = doubleCount == 0 ? NO_DOUBLES : new double[doubleCount];
+        this.longs = longCount == 0 ? NO_LONGS : new long[longCount];
+    }
+
+    // Constructor
+    public TelemetryMessage(long timestamp, double... values) {
+        this(NORMAL, timestamp, values.length, 0);
+        System.arraycopy(values, 0, doubles, 0, values.length);
+    }
+
+    /**
+     * <P>Create a Normal telemetry message with empty slots.</P>
+     *
+     * @param timestamp the sample timestamp
+     * @param doubleCount number of <code>double</code> slots
+     * @param longCount number of <code>long</code> slots
+     * @return the new message
+     */
+    public static TelemetryMessage withCapacity(long timestamp, int doubleCount, int longCount) {
+        return new TelemetryMessage(NORMAL, timestamp, doubleCount, longCount);
+    }
+
+    // Get the sample timestamp
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Set the sample timestamp
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    // Get the number of double values
+    public int getDoubleCount() {
+        return doubles.length;
+    }
+
+    // Get a double value
+    public double getDouble(int index) {
+        return doubles[index];
+    }
+
+    // Set a double value
+    public void setDouble(int index, double value) {
+        doubles[index] = value;
+    }
+
+    // Get the number of long values
+    public int getLongCount() {
+        return longs.length;
+    }
+
+    // Get a long value
+    public long getLong(int index) {
+        return longs[index];
+    }
+
+    // Set a long value
+    public void setLong(int index, long value) {
+        longs[index] = value;
+    }
+}
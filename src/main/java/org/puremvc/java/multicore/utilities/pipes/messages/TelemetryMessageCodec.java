@@ -0,0 +1,83 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.messages;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IMessageCodec;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <P>Telemetry Message Codec.</P>
+ *
+ * <P>Encodes <code>ITelemetryMessage</code>s as their type, priority,
+ * timestamp and values, and decodes them as
+ * <code>TelemetryMessage</code>s. The header and body are not
+ * encoded. Messages of type <code>Message.NORMAL</code>, the usual
+ * case, are written with a one byte marker rather than the type
+ * string.</P>
+ */
+public class TelemetryMessageCodec implements IMessageCodec {
+
+    private static final byte NORMAL_TYPE = 0;
+
+    private static final byte OTHER_TYPE = 1;
+
+    /**
+     * <P>Encode a telemetry message.</P>
+     *
+     * @param message the message to encode, which must be an <code>ITelemetryMessage</code>
+     * @param buffer the buffer to write to
+     */
+    public void encode(IPipeMessage message, ByteBuffer buffer) {
+        ITelemetryMessage sample = (ITelemetryMessage)message;
+        if(sample.getKind() == Message.KIND_NORMAL) {
+            buffer.put(NORMAL_TYPE);
+        } else {
+            byte[] type = sample.getType().getBytes(StandardCharsets.UTF_8);
+            buffer.put(OTHER_TYPE);
+            buffer.putInt(type.length);
+            buffer.put(type);
+        }
+        buffer.putInt(sample.getPriority());
+        buffer.putLong(sample.getTimestamp());
+        buffer.putInt(sample.getDoubleCount());
+        for(int i = 0; i < sample.getDoubleCount(); i++) buffer.putDouble(sample.getDouble(i));
+        buffer.putInt(sample.getLongCount());
+        for(int i = 0; i < sample.getLongCount(); i++) buffer.putLong(sample.getLong(i));
+    }
+
+    /**
+     * <P>Decode a telemetry message.</P>
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded <code>TelemetryMessage</code>
+     */
+    public IPipeMessage decode(ByteBuffer buffer) {
+        String type = Message.NORMAL;
+        if(buffer.get() == OTHER_TYPE) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            type = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int priority = buffer.getInt();
+        long timestamp = buffer.getLong();
+
+        int doubleCount = buffer.getInt();
+        int position = buffer.position();
+        int longCount = buffer.getInt(position + doubleCount * Double.BYTES);
+        TelemetryMessage sample = new TelemetryMessage(type, timestamp, doubleCount, longCount);
+        sample.setPriority(priority);
+        for(int i = 0; i < doubleCount; i++) sample.setDouble(i, buffer.getDouble());
+        buffer.getInt();
+        for(int i = 0; i < longCount; i++) sample.setLong(i, buffer.getLong());
+        return sample;
+    }
+}
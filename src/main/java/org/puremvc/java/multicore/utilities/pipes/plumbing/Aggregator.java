@@ -0,0 +1,417 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * <P>Aggregator.</P>
+ *
+ * <P>Buffers normal messages into batches and writes each batch to
+ * the output as a single message, so the per-message cost of the
+ * fittings and listeners downstream is paid once per batch.</P>
+ *
+ * <P>A batch is written when it holds a number of messages, an
+ * estimated number of bytes, or when a time window has passed since
+ * its first message, whichever comes first. Windows are timed on the
+ * scheduler thread shared by all fittings, and batches they complete
+ * are written on the expiry executor.</P>
+ *
+ * <P>Batches are written one at a time, in the order they were
+ * completed, whichever thread completed them. If a timed batch cannot
+ * be combined or written, it is counted as failed and passed to the
+ * failure handler, if one is set.</P>
+ *
+ * <P>The combine function makes the message written for a batch;
+ * by default it is a normal message whose body is the list of
+ * messages. With a key extractor, messages are batched separately
+ * by key.</P>
+ *
+ * <P>Any other message first writes out all pending batches, then
+ * is written through, so messages keep their order relative to
+ * control messages such as a Queue's FLUSH.</P>
+ */
+public class Aggregator extends Pipe {
+
+    // Batch triggers, 0 when not in use
+    protected int maxMessages;
+
+    protected long maxBytes;
+
+    protected long window;
+
+    protected Function<List<IPipeMessage>, IPipeMessage> combine = Aggregator::combineAsList;
+
+    protected Function<IPipeMessage, Object> keyExtractor;
+
+    protected ToLongFunction<IPipeMessage> sizer = Message::estimateSize;
+
+    // Pending batches by key, in the order they were started
+    protected final LinkedHashMap<Object, Batch> batches = new LinkedHashMap<>();
+
+    // Held from taking a batch out through writing it, so batches go out in order
+    protected final Object emitLock = new Object();
+
+    protected Executor expiryExecutor = ForkJoinPool.commonPool();
+
+    // Set when the expiry executor rejected a timed batch
+    protected volatile boolean expiryDue = false;
+
+    protected volatile BiConsumer<List<IPipeMessage>, Exception> failureHandler;
+
+    protected final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param maxMessages write a batch when it holds this many messages, 0 for no limit
+     */
+    public Aggregator(IPipeFitting output, int maxMessages) {
+        this(output, maxMessages, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param maxMessages write a batch when it holds this many messages, 0 for no limit
+     * @param maxBytes write a batch when its estimated size reaches this, 0 for no limit
+     * @param window write a batch this long after its first message, 0 for no limit
+     * @param unit the unit of the window
+     */
+    public Aggregator(IPipeFitting output, int maxMessages, long maxBytes, long window, TimeUnit unit) {
+        super(output);
+        this.maxMessages = Math.max(0, maxMessages);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.window = Math.max(0, unit.toNanos(window));
+    }
+
+    /**
+     * <P>Set the combine function.</P>
+     *
+     * <P>It is given the messages of a batch, in the order they
+     * arrived, and returns the message to write. The list belongs
+     * to the function and may be kept.</P>
+     *
+     * @param combine the combine function
+     */
+    public synchronized void setCombine(Function<List<IPipeMessage>, IPipeMessage> combine) {
+        this.combine = combine;
+    }
+
+    /**
+     * <P>Set the key extractor.</P>
+     *
+     * <P>Messages with equal keys are batched together. Each key
+     * has its own count, size and window.</P>
+     *
+     * @param keyExtractor function returning the batch key of a message, or null for a single batch
+     */
+    public synchronized void setKeyExtractor(Function<IPipeMessage, Object> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * <P>Set the function estimating message sizes for the byte trigger.</P>
+     *
+     * <P>The default is <code>Message.estimateSize</code>.</P>
+     *
+     * @param sizer function returning the estimated size of a message in bytes
+     */
+    public synchronized void setMessageSizer(ToLongFunction<IPipeMessage> sizer) {
+        this.sizer = sizer;
+    }
+
+    /**
+     * <P>Set the executor that writes timed batches.</P>
+     *
+     * <P>The default is the common <code>ForkJoinPool</code>. If the
+     * executor rejects a batch, it is written on the next write instead.</P>
+     *
+     * @param expiryExecutor the executor
+     */
+    public synchronized void setExpiryExecutor(Executor expiryExecutor) {
+        this.expiryExecutor = expiryExecutor;
+    }
+
+    /**
+     * <P>Set the handler for timed batches that could not be written.</P>
+     *
+     * <P>It is called on the expiry executor with the messages of
+     * the batch, and the exception thrown while combining or writing
+     * it, or null if the output's <code>write</code> returned false.</P>
+     *
+     * @param failureHandler the handler, or null for none
+     */
+    public void setFailureHandler(BiConsumer<List<IPipeMessage>, Exception> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are added to their batch, which is written
+     * out if it is complete. Other messages write out all pending
+     * batches and are then written through.</P>
+     *
+     * @param message the message to handle
+     * @return Boolean false if a write to the output failed
+     */
+    public boolean write(IPipeMessage message) {
+        synchronized (emitLock) {
+            if(expiryDue) expireDue();
+            if(message.getKind() != Message.KIND_NORMAL) {
+                boolean success = flush();
+                return output.write(message) && success;
+            }
+            return add(message);
+        }
+    }
+
+    /**
+     * <P>Add a normal message to its batch, writing the batch out if it is complete.</P>
+     *
+     * <P>Called with the emit lock held.</P>
+     *
+     * @param message the message to add
+     * @return Boolean false if a write to the output failed
+     */
+    protected boolean add(IPipeMessage message) {
+        List<IPipeMessage> complete = null;
+        synchronized (this) {
+            Object key = keyExtractor == null ? null : keyExtractor.apply(message);
+            Batch batch = batches.get(key);
+            if(batch == null) {
+                batch = new Batch();
+                batches.put(key, batch);
+                if(window > 0) {
+                    Batch started = batch;
+                    batch.timer = SharedScheduler.get().schedule(() -> timedExpire(key, started), window, TimeUnit.NANOSECONDS);
+                }
+            }
+            batch.messages.add(message);
+            if(maxBytes > 0) batch.bytes += sizer.applyAsLong(message);
+
+            if((maxMessages > 0 && batch.messages.size() >= maxMessages) || (maxBytes > 0 && batch.bytes >= maxBytes)) {
+                batches.remove(key);
+                if(batch.timer != null) batch.timer.cancel(false);
+                complete = batch.messages;
+            }
+        }
+        return complete == null || emit(complete);
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * @param message the message to handle
+     * @return ACCEPTED if the message was handled, otherwise DROPPED
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages, each as by <code>write</code>.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean false if a write to the output failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>An Aggregator always has room; messages wait in their batch.</P>
+     *
+     * @param message the message to write
+     * @return true
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        return true;
+    }
+
+    /**
+     * <P>Write out all pending batches.</P>
+     *
+     * @return Boolean false if a write to the output failed
+     */
+    public boolean flush() {
+        synchronized (emitLock) {
+            List<Batch> pending;
+            synchronized (this) {
+                if(batches.isEmpty()) return true;
+                pending = new ArrayList<>(batches.values());
+                batches.clear();
+            }
+            boolean success = true;
+            for(Batch batch : pending) {
+                if(batch.timer != null) batch.timer.cancel(false);
+                success = emit(batch.messages) && success;
+            }
+            return success;
+        }
+    }
+
+    /**
+     * <P>Get the number of buffered messages.</P>
+     *
+     * @return the number of messages in pending batches
+     */
+    public synchronized int getSize() {
+        int size = 0;
+        for(Batch batch : batches.values()) {
+            size += batch.messages.size();
+        }
+        return size;
+    }
+
+    /**
+     * <P>Get the number of timed batches that could not be written.</P>
+     *
+     * @return failed batch count
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * <P>Hand a batch whose window has passed to the expiry executor.</P>
+     *
+     * <P>Runs on the shared scheduler thread, so it must not write
+     * the batch there itself.</P>
+     *
+     * @param key the batch key
+     * @param batch the batch the window was started for
+     */
+    protected void timedExpire(Object key, Batch batch) {
+        Executor executor;
+        synchronized (this) {
+            executor = expiryExecutor;
+        }
+        try {
+            executor.execute(() -> expire(key, batch));
+        } catch (RejectedExecutionException exception) {
+            batch.expired = true;
+            expiryDue = true;
+        }
+    }
+
+    /**
+     * <P>Write out the batches whose expiry was rejected by the executor.</P>
+     *
+     * <P>Called with the emit lock held.</P>
+     */
+    protected void expireDue() {
+        expiryDue = false;
+        List<Map.Entry<Object, Batch>> expired = new ArrayList<>();
+        synchronized (this) {
+            for(Map.Entry<Object, Batch> entry : batches.entrySet()) {
+                if(entry.getValue().expired) expired.add(entry);
+            }
+        }
+        for(Map.Entry<Object, Batch> entry : expired) {
+            expire(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * <P>Write out a batch whose window has passed.</P>
+     *
+     * <P>Runs on the expiry executor, so a batch that cannot be
+     * combined or written is counted and passed to the failure
+     * handler rather than thrown.</P>
+     *
+     * @param key the batch key
+     * @param batch the batch the window was started for
+     */
+    protected void expire(Object key, Batch batch) {
+        synchronized (emitLock) {
+            synchronized (this) {
+                if(batches.get(key) != batch) return;
+                batches.remove(key);
+            }
+            Exception error = null;
+            try {
+                if(emit(batch.messages)) return;
+            } catch (Exception exception) {
+                error = exception;
+            }
+            failedCount.incrementAndGet();
+            BiConsumer<List<IPipeMessage>, Exception> handler = failureHandler;
+            if(handler != null) handler.accept(batch.messages, error);
+        }
+    }
+
+    /**
+     * <P>Combine a batch and write it to the output.</P>
+     *
+     * @param messages the messages of the batch
+     * @return Boolean false if the write failed
+     */
+    protected boolean emit(List<IPipeMessage> messages) {
+        Function<List<IPipeMessage>, IPipeMessage> combiner;
+        synchronized (this) {
+            combiner = combine;
+        }
+        return output.write(combiner.apply(messages));
+    }
+
+    /**
+     * <P>The default combine function.</P>
+     *
+     * <P>Makes a normal message whose body is the list of messages,
+     * with the priority of the most urgent of them.</P>
+     *
+     * @param messages the messages of a batch
+     * @return the combined message
+     */
+    public static IPipeMessage combineAsList(List<IPipeMessage> messages) {
+        int priority = messages.get(0).getPriority();
+        for(IPipeMessage message : messages) {
+            priority = Math.min(priority, message.getPriority());
+        }
+        return new Message(Message.NORMAL, null, messages, priority);
+    }
+
+    /**
+     * <P>A pending batch.</P>
+     */
+    protected static class Batch {
+
+        protected final List<IPipeMessage> messages = new ArrayList<>();
+
+        protected long bytes;
+
+        protected ScheduledFuture<?> timer;
+
+        protected volatile boolean expired;
+    }
+}
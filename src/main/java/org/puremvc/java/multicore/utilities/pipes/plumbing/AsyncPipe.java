@@ -0,0 +1,321 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>Asynchronous Pipe.</P>
+ *
+ * <P>Decouples the writers of a pipeline from the fittings
+ * downstream of it. Messages written to an <code>AsyncPipe</code>
+ * are placed in a bounded ring buffer and written to the output
+ * on a consumer thread of its own, in the order they were
+ * accepted. Control messages travel through the buffer with
+ * normal messages, so their order is kept too.</P>
+ *
+ * <P>Writing never waits for the downstream fittings. If the
+ * buffer is full, <code>write</code> returns false immediately
+ * and the message is not accepted. Since delivery happens later,
+ * a true result only means the message was accepted; failed
+ * deliveries are counted and can be read with
+ * <code>getFailedCount</code>.</P>
+ *
+ * <P>The consumer thread is created by the given
+ * <code>ThreadFactory</code>, so on a JVM with virtual threads
+ * it can be a virtual thread. It is started by <code>start</code>,
+ * or by the first write, not by the constructor. When the buffer is empty it waits
+ * according to the wait strategy: <code>WAIT_BLOCK</code> parks
+ * until a message arrives, <code>WAIT_YIELD</code> yields, and
+ * <code>WAIT_SPIN</code> keeps polling for the lowest latency.</P>
+ */
+public class AsyncPipe extends Pipe {
+
+    /**
+     * <P>Park the consumer until a message arrives (default).</P>
+     */
+    public static final String WAIT_BLOCK = "block";
+
+    /**
+     * <P>Yield the consumer thread between polls.</P>
+     */
+    public static final String WAIT_YIELD = "yield";
+
+    /**
+     * <P>Poll continuously, dedicating a core to the consumer.</P>
+     */
+    public static final String WAIT_SPIN = "spin";
+
+    /**
+     * <P>Default buffer capacity.</P>
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    protected final AtomicReferenceArray<IPipeMessage> buffer;
+
+    protected final int mask;
+
+    protected final String waitStrategy;
+
+    // Next sequence to be claimed by a producer
+    protected final AtomicLong tail = new AtomicLong();
+
+    // Next sequence to be delivered by the consumer
+    protected volatile long head = 0;
+
+    protected volatile boolean running = true;
+
+    protected volatile boolean waiting = false;
+
+    protected volatile boolean started = false;
+
+    // Producers between checking running and publishing their message
+    protected final AtomicInteger writers = new AtomicInteger();
+
+    protected final AtomicLong failed = new AtomicLong();
+
+    protected final Thread consumer;
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>The capacity is rounded up to a power of two.</P>
+     *
+     * @param output output pipe
+     * @param capacity maximum number of buffered messages
+     * @param waitStrategy one of <code>WAIT_BLOCK</code>, <code>WAIT_YIELD</code> or <code>WAIT_SPIN</code>
+     * @param threadFactory factory for the consumer thread
+     */
+    public AsyncPipe(IPipeFitting output, int capacity, String waitStrategy, ThreadFactory threadFactory) {
+        super(output);
+        int size = 1;
+        while(size < capacity) size <<= 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.consumer = threadFactory.newThread(this::consume);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>Uses a daemon platform thread for the consumer.</P>
+     *
+     * @param output output pipe
+     * @param capacity maximum number of buffered messages
+     * @param waitStrategy one of <code>WAIT_BLOCK</code>, <code>WAIT_YIELD</code> or <code>WAIT_SPIN</code>
+     */
+    public AsyncPipe(IPipeFitting output, int capacity, String waitStrategy) {
+        this(output, capacity, waitStrategy, runnable -> {
+            Thread thread = new Thread(runnable, "AsyncPipe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param capacity maximum number of buffered messages
+     */
+    public AsyncPipe(IPipeFitting output, int capacity) {
+        this(output, capacity, WAIT_BLOCK);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     */
+    public AsyncPipe(IPipeFitting output) {
+        this(output, DEFAULT_CAPACITY, WAIT_BLOCK);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     */
+    public AsyncPipe() {
+        this(null, DEFAULT_CAPACITY, WAIT_BLOCK);
+    }
+
+    /**
+     * <P>Accept the message for delivery on the consumer thread.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if the buffer is full or the pipe is stopped
+     */
+    public boolean write(IPipeMessage message) {
+        return offer(message).isAccepted();
+    }
+
+    /**
+     * <P>Accept the message for delivery, reporting the outcome.</P>
+     *
+     * <P>The demand listeners are told when the consumer takes a
+     * message from a full buffer.</P>
+     *
+     * @param message the message to write
+     * @return FULL if the buffer is full, DROPPED if the pipe is stopped
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(!started) start();
+        writers.incrementAndGet();
+        try {
+            if(!running) return WriteOutcome.DROPPED;
+            long sequence;
+            do {
+                sequence = tail.get();
+                if(sequence - head > mask) return WriteOutcome.FULL;
+            } while(!tail.compareAndSet(sequence, sequence + 1));
+
+            buffer.set((int)sequence & mask, message);
+        } finally {
+            writers.decrementAndGet();
+        }
+        if(waiting) LockSupport.unpark(consumer);
+        return WriteOutcome.ACCEPTED;
+    }
+
+    /**
+     * <P>Accept a batch of messages, each as by <code>write</code>.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean false if any message was not accepted
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Is there room in the buffer?</P>
+     *
+     * @param message the message to write
+     * @return false if the buffer is full
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        return !running || tail.get() - head <= mask;
+    }
+
+    /**
+     * <P>Start the consumer thread, if it is not already started.</P>
+     */
+    public synchronized void start() {
+        if(started) return;
+        started = true;
+        consumer.start();
+    }
+
+    /**
+     * <P>Stop the consumer thread.</P>
+     *
+     * <P>Messages already accepted are still delivered, including
+     * any a writer is still publishing; subsequent writes are
+     * rejected.</P>
+     */
+    public void stop() {
+        start();
+        running = false;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * <P>Number of messages waiting for delivery.</P>
+     *
+     * @return buffered message count
+     */
+    public int getSize() {
+        return (int)(tail.get() - head);
+    }
+
+    /**
+     * <P>Number of delivered messages the output failed to write.</P>
+     *
+     * @return failed delivery count
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * <P>An AsyncPipe tells its demand listeners itself, when its buffer has room.</P>
+     *
+     * @return false
+     */
+    protected boolean passesDemand() {
+        return false;
+    }
+
+    /**
+     * <P>Deliver buffered messages until stopped and drained.</P>
+     */
+    protected void consume() {
+        while(true) {
+            int index = (int)head & mask;
+            IPipeMessage message = buffer.get(index);
+            if(message != null) {
+                buffer.lazySet(index, null);
+                boolean full = tail.get() - head > mask;
+                head = head + 1;
+                if(full) signalDemand();
+                deliver(message);
+            } else if(!running && writers.get() == 0 && head == tail.get()) {
+                return;
+            } else {
+                await();
+            }
+        }
+    }
+
+    /**
+     * <P>Write a message to the output, counting failures.</P>
+     *
+     * @param message the message to deliver
+     */
+    protected void deliver(IPipeMessage message) {
+        try {
+            if(output == null || !output.write(message)) failed.incrementAndGet();
+        } catch (Exception exception) {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * <P>Wait for a message according to the wait strategy.</P>
+     */
+    protected void await() {
+        switch (waitStrategy) {
+            case WAIT_SPIN:
+                break;
+
+            case WAIT_YIELD:
+                Thread.yield();
+                break;
+
+            default:
+                waiting = true;
+                if(buffer.get((int)head & mask) == null && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <P>Concurrent Pipe Queue.</P>
+ *
+ * <P>A Queue for pipelines that are written to from many threads.
+ * Like <code>Queue</code>, it stores inbound messages until it is
+ * sent a FLUSH control message, and can be put into sort-by-priority
+ * or FIFO mode with SORT and FIFO control messages.</P>
+ *
+ * <P>Messages are stored in a lock-free, multiple producer, single
+ * consumer linked queue. Writing a normal message never blocks, no
+ * matter how many threads are writing. A FLUSH drains the messages
+ * stored before it started; only one thread drains at a time.</P>
+ *
+ * <P>Unlike <code>Queue</code>, the mode in effect when the FLUSH is
+ * received decides the order of the whole batch. In SORT mode the
+ * batch is written by priority, messages of equal priority in the
+ * order they were stored.</P>
+ *
+ * <P>A ConcurrentQueue can be given a capacity. A normal message that
+ * arrives when it is full is rejected; <code>write</code> returns
+ * false and <code>offer</code> returns <code>WriteOutcome.FULL</code>,
+ * until a FLUSH makes room and the demand listeners are told.</P>
+ */
+public class ConcurrentQueue extends Pipe {
+
+    protected volatile String mode = QueueControlMessage.SORT;
+
+    // Kind of the mode type, checked on each store
+    protected volatile int modeKind = QueueControlMessage.KIND_SORT;
+
+    // Consumer end of the linked queue, only touched while flushing
+    protected Node head = new Node(null);
+
+    // Producer end of the linked queue
+    protected AtomicReference<Node> tail = new AtomicReference<>(head);
+
+    // Number of stored messages, claimed before a message is linked in
+    protected final AtomicInteger size = new AtomicInteger();
+
+    // Maximum number of stored messages
+    protected final int capacity;
+
+    /**
+     * <P>Constructor.</P>
+     */
+    public ConcurrentQueue() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     */
+    public ConcurrentQueue(IPipeFitting output) {
+        this(output, Integer.MAX_VALUE);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param capacity maximum number of stored messages
+     */
+    public ConcurrentQueue(IPipeFitting output, int capacity) {
+        super(output);
+        if(capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are enqueued.</P>
+     *
+     * <P>The FLUSH message type tells the Queue to write all
+     * stored messages to the ouptut PipeFitting, then
+     * return to normal enqueing operation.</P>
+     *
+     * <P>The SORT and FIFO message types set the order in
+     * which subsequent flushes write their messages.</P>
+     *
+     * <P>Returns false if a normal message is rejected because
+     * the queue is full.</P>
+     */
+    public boolean write(IPipeMessage message) {
+        boolean success = true;
+
+        switch (message.getKind()) {
+            // Store normal messages
+            case Message.KIND_NORMAL:
+                success = this.store(message);
+                break;
+
+            // Flush the queue
+            case QueueControlMessage.KIND_FLUSH:
+                success = this.flush();
+                break;
+
+            // Put Queue into Priority Sort or FIFO mode
+            case QueueControlMessage.KIND_SORT:
+            case QueueControlMessage.KIND_FIFO:
+                mode = message.getType();
+                modeKind = message.getKind();
+                break;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * @param message the message to handle
+     * @return FULL if a normal message does not fit, otherwise the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() == Message.KIND_NORMAL) return store(message) ? WriteOutcome.ACCEPTED : WriteOutcome.FULL;
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages, each as by <code>write</code>.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean false if a message was rejected or a flush in the batch failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * @param message the message to write
+     * @return false if a normal message would not fit
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        return message.getKind() != Message.KIND_NORMAL || size.get() < capacity;
+    }
+
+    /**
+     * <P>Get the number of stored messages.</P>
+     *
+     * @return the number of messages waiting for a flush
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * <P>Sort the Messages by priority.</P>
+     *
+     * @param msgA message A
+     * @param msgB message B
+     *
+     * @return int for priority indication, -1 less than, 0 equal, 1 greater than
+     */
+    protected int sortMessagesByPriority(IPipeMessage msgA, IPipeMessage msgB) {
+        int num = 0;
+        if(msgA.getPriority() < msgB.getPriority()) num = -1;
+        if(msgA.getPriority() > msgB.getPriority()) num = 1;
+        return num;
+    }
+
+    /**
+     * <P>Store a message.</P>
+     *
+     * <P>A place is claimed in the size counter, then the new
+     * node is swapped in as the tail and linked to the previous
+     * tail, so producers never wait on each other or on a flush.</P>
+     *
+     * @param message the IPipeMessage to enqueue.
+     * @return true if there was room to store the message
+     */
+    protected boolean store(IPipeMessage message) {
+        if(size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        Node node = new Node(message);
+        tail.getAndSet(node).next = node;
+        return true;
+    }
+
+    /**
+     * <P>Flush the queue.</P>
+     *
+     * <P>Drains the messages stored before the flush started.
+     * Messages stored while it is running are held for the
+     * next flush. The messages are written to the output as a
+     * single batch. The demand listeners are told once the
+     * messages have been drained.</P>
+     *
+     * @return Boolean true if all messages written successfully.
+     */
+    protected synchronized boolean flush() {
+        ArrayList<IPipeMessage> batch = new ArrayList<>();
+        Node last = tail.get();
+        while(head != last) {
+            Node next = head.next;
+            // A producer has swapped the tail but not linked it yet
+            while(next == null) {
+                Thread.yield();
+                next = head.next;
+            }
+            batch.add(next.message);
+            next.message = null;
+            head = next;
+        }
+
+        if(batch.isEmpty()) return true;
+        size.addAndGet(-batch.size());
+        signalDemand();
+
+        if(modeKind == QueueControlMessage.KIND_SORT) {
+            batch.sort(this::sortMessagesByPriority);
+        }
+
+        return output.writeBatch(batch);
+    }
+
+    /**
+     * <P>A ConcurrentQueue tells its demand listeners itself, when a flush makes room.</P>
+     *
+     * @return false
+     */
+    protected boolean passesDemand() {
+        return false;
+    }
+
+    /**
+     * <P>A node in the linked queue.</P>
+     */
+    protected static class Node {
+
+        protected IPipeMessage message;
+
+        protected volatile Node next;
+
+        /**
+         * <P>Constructor.</P>
+         *
+         * @param message stored message
+         */
+        protected Node(IPipeMessage message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,623 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>Fair Merging Pipe Tee.</P>
+ *
+ * <P>Like <code>TeeMerge</code>, writes the messages from multiple
+ * input pipelines into a single output, but gives each input a small
+ * buffer of its own and writes them to the output on a consumer
+ * thread, choosing which input to take from next. A flood of
+ * messages on one input fills only that input's buffer, and cannot
+ * starve the others.</P>
+ *
+ * <P>The drain policy decides the order: <code>DRAIN_WEIGHTED</code>
+ * takes up to <i>weight</i> messages from each input in turn, so each
+ * busy input gets its share of the output; <code>DRAIN_PRIORITY</code>
+ * always takes from the input with the most urgent priority that has
+ * messages waiting. Messages from one input, including control
+ * messages, keep their order.</P>
+ *
+ * <P>When an input's buffer is full its <code>write</code> returns
+ * false and <code>offer</code> returns FULL. Demand listeners on the
+ * input are called when the consumer makes room. As with
+ * <code>AsyncPipe</code>, a true result only means the message was
+ * accepted; failed deliveries are counted.</P>
+ *
+ * <P>Messages are held in the buffers while no output is connected,
+ * and delivered once one is. The consumer thread is started by
+ * <code>start</code>, or by the first write, not by the constructor.</P>
+ */
+public class FairMerge extends Pipe {
+
+    /**
+     * <P>Take up to <i>weight</i> messages from each input in turn (default).</P>
+     */
+    public static final String DRAIN_WEIGHTED = "weighted";
+
+    /**
+     * <P>Take from the most urgent input with messages waiting.</P>
+     */
+    public static final String DRAIN_PRIORITY = "priority";
+
+    /**
+     * <P>Default capacity of each input's buffer.</P>
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    protected final String drainPolicy;
+
+    protected final int capacity;
+
+    // Snapshot of the inputs, replaced on every change, by priority in DRAIN_PRIORITY
+    protected volatile Input[] inputs = new Input[0];
+
+    // Input for messages written to the merge itself, created on first use
+    protected Input directInput;
+
+    // Weighted round-robin state, only touched by the consumer
+    protected int cursor;
+
+    protected int credit;
+
+    protected volatile boolean running = true;
+
+    protected volatile boolean waiting = false;
+
+    protected volatile boolean started = false;
+
+    // The output, as seen by the consumer thread
+    protected volatile IPipeFitting target;
+
+    // Producers between checking running and buffering their message
+    protected final AtomicInteger writers = new AtomicInteger();
+
+    protected final AtomicLong failed = new AtomicLong();
+
+    protected final Thread consumer;
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param drainPolicy one of <code>DRAIN_WEIGHTED</code> or <code>DRAIN_PRIORITY</code>
+     * @param capacity maximum number of buffered messages for each input
+     * @param threadFactory factory for the consumer thread
+     */
+    public FairMerge(IPipeFitting output, String drainPolicy, int capacity, ThreadFactory threadFactory) {
+        super(output);
+        this.drainPolicy = drainPolicy;
+        this.capacity = capacity;
+        this.consumer = threadFactory.newThread(this::consume);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>Uses a daemon platform thread for the consumer.</P>
+     *
+     * @param output output pipe
+     * @param drainPolicy one of <code>DRAIN_WEIGHTED</code> or <code>DRAIN_PRIORITY</code>
+     * @param capacity maximum number of buffered messages for each input
+     */
+    public FairMerge(IPipeFitting output, String drainPolicy, int capacity) {
+        this(output, drainPolicy, capacity, runnable -> {
+            Thread thread = new Thread(runnable, "FairMerge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param drainPolicy one of <code>DRAIN_WEIGHTED</code> or <code>DRAIN_PRIORITY</code>
+     */
+    public FairMerge(IPipeFitting output, String drainPolicy) {
+        this(output, drainPolicy, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     */
+    public FairMerge(IPipeFitting output) {
+        this(output, DRAIN_WEIGHTED, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     */
+    public FairMerge() {
+        this(null, DRAIN_WEIGHTED, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <P>Connect the output.</P>
+     *
+     * <P>Messages held while no output was connected are delivered to it.</P>
+     *
+     * @param output the output
+     * @return true if no other fitting was already connected.
+     */
+    public synchronized boolean connect(IPipeFitting output) {
+        if(!super.connect(output)) return false;
+        target = output;
+        LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * <P>Disconnect the output.</P>
+     *
+     * <P>Messages are held until another output is connected.</P>
+     *
+     * @return IPipeFitting the now disconnected output
+     */
+    public synchronized IPipeFitting disconnect() {
+        target = null;
+        return super.disconnect();
+    }
+
+    /**
+     * <P>Connect an input IPipeFitting with weight 1 and medium priority.</P>
+     *
+     * @param input the IPipeFitting to connect for input.
+     * @return true if pipe connection was successful.
+     */
+    public boolean connectInput(IPipeFitting input) {
+        return connectInput(input, 1, Message.PRIORITY_MED);
+    }
+
+    /**
+     * <P>Connect an input IPipeFitting.</P>
+     *
+     * @param input the IPipeFitting to connect for input.
+     * @param weight messages taken from the input in each turn, in <code>DRAIN_WEIGHTED</code>
+     * @param priority priority of the input, lower is more urgent, in <code>DRAIN_PRIORITY</code>
+     * @return true if pipe connection was successful.
+     */
+    public boolean connectInput(IPipeFitting input, int weight, int priority) {
+        Input buffer = createInput(weight, priority);
+        if(input.connect(buffer)) return true;
+        disconnectInput(buffer);
+        return false;
+    }
+
+    /**
+     * <P>Create an input with its own buffer.</P>
+     *
+     * <P>Producers may write to the returned fitting directly, or
+     * connect a pipe to it.</P>
+     *
+     * @param weight messages taken from the input in each turn, in <code>DRAIN_WEIGHTED</code>
+     * @param priority priority of the input, lower is more urgent, in <code>DRAIN_PRIORITY</code>
+     * @return the input
+     * @throws IllegalArgumentException if the weight is not positive
+     */
+    public synchronized Input createInput(int weight, int priority) {
+        if(weight <= 0) throw new IllegalArgumentException("Weight must be positive: " + weight);
+        Input input = new Input(weight, priority);
+        Input[] next = Arrays.copyOf(inputs, inputs.length + 1);
+        next[next.length - 1] = input;
+        if(DRAIN_PRIORITY.equals(drainPolicy)) {
+            Arrays.sort(next, (a, b) -> Integer.compare(a.priority, b.priority));
+        }
+        inputs = next;
+        return input;
+    }
+
+    /**
+     * <P>Disconnect an input.</P>
+     *
+     * <P>Messages still in its buffer are discarded, and messages
+     * written to it afterwards are DROPPED.</P>
+     *
+     * @param target the input to disconnect
+     * @return the disconnected input, or null if it was not connected
+     */
+    public synchronized Input disconnectInput(Input target) {
+        Input[] current = inputs;
+        for(int i = 0; i < current.length; i++) {
+            if(current[i] == target) {
+                target.closed = true;
+                Input[] next = new Input[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                inputs = next;
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <P>Accept a message written to the merge itself.</P>
+     *
+     * <P>It is buffered in an input of its own, with weight 1 and
+     * medium priority.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if the buffer is full or the merge is stopped
+     */
+    public boolean write(IPipeMessage message) {
+        return directInput().write(message);
+    }
+
+    /**
+     * <P>Offer a message written to the merge itself.</P>
+     *
+     * @param message the message to write
+     * @return FULL if the buffer is full, DROPPED if the merge is stopped
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        return directInput().offer(message);
+    }
+
+    /**
+     * <P>Accept a batch of messages written to the merge itself.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean false if any message was not buffered
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        return directInput().writeBatch(messages);
+    }
+
+    /**
+     * <P>Is there room in the input for messages written to the merge itself?</P>
+     *
+     * @param message the message to write
+     * @return false if the buffer is full
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        return directInput().hasRoom(message);
+    }
+
+    /**
+     * <P>Add a listener called when there is room for messages written to the merge itself.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public void addDemandListener(Runnable listener) {
+        directInput().addDemandListener(listener);
+    }
+
+    /**
+     * <P>Remove a demand listener.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public void removeDemandListener(Runnable listener) {
+        directInput().removeDemandListener(listener);
+    }
+
+    /**
+     * <P>Start the consumer thread, if it is not already started.</P>
+     */
+    public synchronized void start() {
+        if(started) return;
+        started = true;
+        consumer.start();
+    }
+
+    /**
+     * <P>Stop the consumer thread.</P>
+     *
+     * <P>Messages already accepted are still delivered, including
+     * any a writer is still buffering; subsequent writes are
+     * rejected. If no output is connected, the buffered messages
+     * are counted as failed.</P>
+     */
+    public void stop() {
+        start();
+        running = false;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * <P>Number of messages waiting for delivery on all inputs.</P>
+     *
+     * @return buffered message count
+     */
+    public int getSize() {
+        int size = 0;
+        for(Input input : inputs) {
+            size += input.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * <P>Number of delivered messages the output failed to write.</P>
+     *
+     * @return failed delivery count
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * <P>Get the input for messages written to the merge itself.</P>
+     *
+     * @return the input
+     */
+    protected synchronized Input directInput() {
+        if(directInput == null) directInput = createInput(1, Message.PRIORITY_MED);
+        return directInput;
+    }
+
+    /**
+     * <P>Deliver buffered messages until stopped and drained.</P>
+     */
+    protected void consume() {
+        while(true) {
+            IPipeFitting current = target;
+            IPipeMessage message = null;
+            if(current != null) {
+                Input[] temp = inputs;
+                message = DRAIN_PRIORITY.equals(drainPolicy) ? nextByPriority(temp) : nextWeighted(temp);
+            }
+            if(message != null) {
+                deliver(current, message);
+            } else if(!running && writers.get() == 0 && (current == null || isEmpty())) {
+                if(current == null) discard();
+                return;
+            } else {
+                await();
+            }
+        }
+    }
+
+    /**
+     * <P>Take the next message by weighted round-robin.</P>
+     *
+     * <P>The current input is taken from until its credit, set to
+     * its weight at the start of its turn, runs out or its buffer
+     * is empty; then the turn passes to the next input.</P>
+     *
+     * @param temp the inputs
+     * @return the message, or null if every buffer is empty
+     */
+    protected IPipeMessage nextWeighted(Input[] temp) {
+        for(int i = 0; i <= temp.length; i++) {
+            if(cursor >= temp.length) {
+                cursor = 0;
+                credit = temp.length == 0 ? 0 : temp[0].weight;
+            }
+            if(credit > 0) {
+                IPipeMessage message = temp[cursor].poll();
+                if(message != null) {
+                    credit--;
+                    return message;
+                }
+            }
+            if(temp.length == 0) return null;
+            cursor = (cursor + 1) % temp.length;
+            credit = temp[cursor].weight;
+        }
+        return null;
+    }
+
+    /**
+     * <P>Take the next message from the most urgent input that has one.</P>
+     *
+     * @param temp the inputs, by priority
+     * @return the message, or null if every buffer is empty
+     */
+    protected IPipeMessage nextByPriority(Input[] temp) {
+        for(Input input : temp) {
+            IPipeMessage message = input.poll();
+            if(message != null) return message;
+        }
+        return null;
+    }
+
+    /**
+     * <P>Write a message to the output, counting failures.</P>
+     *
+     * @param output the output
+     * @param message the message to deliver
+     */
+    protected void deliver(IPipeFitting output, IPipeMessage message) {
+        try {
+            if(!output.write(message)) failed.incrementAndGet();
+        } catch (Exception exception) {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * <P>Empty every input's buffer, counting the messages as failed.</P>
+     */
+    protected void discard() {
+        for(Input input : inputs) {
+            while(input.buffer.poll() != null) {
+                input.size.decrementAndGet();
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * <P>Whether every input's buffer is empty.</P>
+     *
+     * @return true if there is nothing to deliver
+     */
+    protected boolean isEmpty() {
+        for(Input input : inputs) {
+            if(input.getSize() > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * <P>Park the consumer until a message arrives and there is an output.</P>
+     */
+    protected void await() {
+        waiting = true;
+        if((target == null || isEmpty()) && running) {
+            LockSupport.park(this);
+        }
+        waiting = false;
+    }
+
+    /**
+     * <P>An input of the merge, with its own buffer.</P>
+     */
+    public class Input implements IPipeFitting {
+
+        protected final int weight;
+
+        protected final int priority;
+
+        protected final ArrayBlockingQueue<IPipeMessage> buffer = new ArrayBlockingQueue<>(capacity);
+
+        // Number of buffered messages, counted before a message is added and after it is taken
+        protected final AtomicInteger size = new AtomicInteger();
+
+        protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+
+        // Set when the input is disconnected from the merge
+        protected volatile boolean closed = false;
+
+        /**
+         * <P>Constructor.</P>
+         *
+         * @param weight messages taken from the input in each turn
+         * @param priority priority of the input, lower is more urgent
+         */
+        protected Input(int weight, int priority) {
+            this.weight = weight;
+            this.priority = priority;
+        }
+
+        /**
+         * <P>Buffer the message for delivery on the consumer thread.</P>
+         *
+         * @param message the message to write
+         * @return Boolean false if the buffer is full, the merge is stopped or the input disconnected
+         */
+        public boolean write(IPipeMessage message) {
+            return offer(message).isAccepted();
+        }
+
+        /**
+         * <P>Buffer the message, reporting the outcome.</P>
+         *
+         * @param message the message to write
+         * @return FULL if the buffer is full, DROPPED if the merge is stopped or the input disconnected
+         */
+        public WriteOutcome offer(IPipeMessage message) {
+            if(!started) start();
+            writers.incrementAndGet();
+            try {
+                if(!running || closed) return WriteOutcome.DROPPED;
+                size.incrementAndGet();
+                if(!buffer.offer(message)) {
+                    size.decrementAndGet();
+                    return WriteOutcome.FULL;
+                }
+            } finally {
+                writers.decrementAndGet();
+            }
+            if(waiting) LockSupport.unpark(consumer);
+            return WriteOutcome.ACCEPTED;
+        }
+
+        /**
+         * <P>Is there room in the buffer?</P>
+         *
+         * @param message the message to write
+         * @return false if the buffer is full
+         */
+        public boolean hasRoom(IPipeMessage message) {
+            return !running || closed || buffer.remainingCapacity() > 0;
+        }
+
+        /**
+         * <P>An input is connected to the merge, and cannot be connected elsewhere.</P>
+         *
+         * @param output ignored
+         * @return false
+         */
+        public boolean connect(IPipeFitting output) {
+            return false;
+        }
+
+        /**
+         * <P>An input is connected to the merge, and cannot be disconnected.</P>
+         *
+         * @return null
+         */
+        public IPipeFitting disconnect() {
+            return null;
+        }
+
+        /**
+         * <P>Add a listener called when the consumer makes room in a full buffer.</P>
+         *
+         * @param listener the listener to call when there is room
+         */
+        public void addDemandListener(Runnable listener) {
+            demandListeners.addIfAbsent(listener);
+        }
+
+        /**
+         * <P>Remove a demand listener.</P>
+         *
+         * @param listener the listener to remove
+         */
+        public void removeDemandListener(Runnable listener) {
+            demandListeners.remove(listener);
+        }
+
+        /**
+         * <P>Number of messages waiting in the buffer.</P>
+         *
+         * @return buffered message count
+         */
+        public int getSize() {
+            return size.get();
+        }
+
+        /**
+         * <P>Take a message from the buffer, signalling demand if it was full.</P>
+         *
+         * @return the message, or null if the buffer is empty
+         */
+        protected IPipeMessage poll() {
+            boolean full = buffer.remainingCapacity() == 0;
+            IPipeMessage message = buffer.poll();
+            if(message != null) size.decrementAndGet();
+            if(message != null && full) {
+                for(Runnable listener : demandListeners) {
+                    listener.run();
+                }
+            }
+            return message;
+        }
+    }
+}
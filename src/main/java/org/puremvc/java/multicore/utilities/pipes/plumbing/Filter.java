@@ -9,9 +9,13 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.function.BiConsumer;
 
 /**
@@ -26,6 +30,9 @@ public class Filter extends Pipe {
 
     protected String mode = FilterControlMessage.FILTER;
 
+    // Kind of the mode type, checked on each message
+    protected int modeKind = FilterControlMessage.KIND_FILTER;
+
     protected BiConsumer<IPipeMessage, Object> filter = (message, params) -> {return;};
 
     protected Object params = new Object();
@@ -91,12 +98,12 @@ public class Filter extends Pipe {
     public boolean write(IPipeMessage message) {
         boolean success = true;
 
-        switch (message.getType()) {
+        switch (message.getKind()) {
 
             // Filter normal messages
-            case Message.NORMAL:
+            case Message.KIND_NORMAL:
                 try {
-                    if(mode == FilterControlMessage.FILTER) {
+                    if(modeKind == FilterControlMessage.KIND_FILTER) {
                         applyFilter(message);
                     }
                     success = output.write(message);
@@ -105,41 +112,160 @@ public class Filter extends Pipe {
                 }
                 break;
 
-            // Accept parameters from control message
-            case FilterControlMessage.SET_PARAMS:
+            // Accept control messages targeted at this filter
+            case FilterControlMessage.KIND_SET_PARAMS:
+            case FilterControlMessage.KIND_SET_FILTER:
+            case FilterControlMessage.KIND_BYPASS:
+            case FilterControlMessage.KIND_FILTER:
                 if(isTarget(message)) {
-                    setParams(((FilterControlMessage)message).getParams());
+                    control(message);
                 } else {
                     success = output.write(message);
                 }
                 break;
 
-            // Accept filter function from control message
-            case FilterControlMessage.SET_FILTER:
-                if(isTarget(message)) {
-                    setFilter(((FilterControlMessage)message).getFilter());
-                } else {
-                    success = output.write(message);
+            // Write control messages for other fittings through
+            default:
+                success = output.write(message);
+        }
+        return success;
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * <P>Handles the message as <code>write</code> does. A message
+     * whose filter throws is DROPPED; otherwise the outcome from the
+     * output is passed back. Room further down the pipeline is checked
+     * before the message is filtered, so a full fitting is reported as
+     * FULL without filtering the message. If the fitting fills up
+     * after the message was filtered, PARTIAL is reported, since
+     * offering it again would filter it twice. With no output
+     * connected, a normal message is DROPPED.</P>
+     *
+     * @param message the message to handle
+     * @return the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        switch (message.getKind()) {
+
+            // Filter normal messages
+            case Message.KIND_NORMAL:
+                try {
+                    if(output == null) return WriteOutcome.DROPPED;
+                    if(!output.hasRoom(message)) return WriteOutcome.FULL;
+                    if(modeKind == FilterControlMessage.KIND_FILTER) {
+                        applyFilter(message);
+                        return output.offer(message).afterAction();
+                    }
+                    return output.offer(message);
+                } catch (Exception exception) {
+                    return WriteOutcome.DROPPED;
                 }
-                break;
 
-            // Toggle between Filter or Bypass operational modes
-            case FilterControlMessage.BYPASS:
-            case FilterControlMessage.FILTER:
+            // Accept control messages targeted at this filter
+            case FilterControlMessage.KIND_SET_PARAMS:
+            case FilterControlMessage.KIND_SET_FILTER:
+            case FilterControlMessage.KIND_BYPASS:
+            case FilterControlMessage.KIND_FILTER:
                 if(isTarget(message)) {
-                    mode = ((FilterControlMessage)message).getType();
-                } else {
-                    success = output.write(message);
+                    control(message);
+                    return WriteOutcome.ACCEPTED;
                 }
-                break;
+                return output.offer(message);
 
             // Write control messages for other fittings through
             default:
-                success = output.write(message);
+                return output.offer(message);
+        }
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages.</P>
+     *
+     * <P>Each message is handled as by <code>write</code>, in order,
+     * and the messages that pass are written to the output as one
+     * batch. A control message targeted at this filter affects the
+     * messages after it in the batch.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean True if no filter process throws an error and subsequent operations
+     * in the pipeline succede.
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        List<IPipeMessage> batch = new ArrayList<>(messages.size());
+
+        for(IPipeMessage message : messages) {
+            switch (message.getKind()) {
+
+                // Filter normal messages
+                case Message.KIND_NORMAL:
+                    try {
+                        if(modeKind == FilterControlMessage.KIND_FILTER) {
+                            applyFilter(message);
+                        }
+                        batch.add(message);
+                    } catch (Exception exception) {
+                        success = false;
+                    }
+                    break;
+
+                // Accept control messages targeted at this filter
+                case FilterControlMessage.KIND_SET_PARAMS:
+                case FilterControlMessage.KIND_SET_FILTER:
+                case FilterControlMessage.KIND_BYPASS:
+                case FilterControlMessage.KIND_FILTER:
+                    if(isTarget(message)) {
+                        control(message);
+                    } else {
+                        batch.add(message);
+                    }
+                    break;
+
+                // Write control messages for other fittings through
+                default:
+                    batch.add(message);
+            }
+        }
+
+        if(!batch.isEmpty()) {
+            try {
+                if(!output.writeBatch(batch)) success = false;
+            } catch (Exception exception) {
+                return false;
+            }
         }
         return success;
     }
 
+    /**
+     * <P>Act on a control message targeted at this filter.</P>
+     *
+     * @param message the control message
+     */
+    protected void control(IPipeMessage message) {
+        switch (message.getKind()) {
+
+            // Accept parameters from control message
+            case FilterControlMessage.KIND_SET_PARAMS:
+                setParams(((FilterControlMessage)message).getParams());
+                break;
+
+            // Accept filter function from control message
+            case FilterControlMessage.KIND_SET_FILTER:
+                setFilter(((FilterControlMessage)message).getFilter());
+                break;
+
+            // Toggle between Filter or Bypass operational modes
+            case FilterControlMessage.KIND_BYPASS:
+            case FilterControlMessage.KIND_FILTER:
+                mode = message.getType();
+                modeKind = message.getKind();
+                break;
+        }
+    }
+
     /**
      * <P>Is the message directed at this filter instance?</P>
      *
@@ -147,7 +273,7 @@ public class Filter extends Pipe {
      * @return true if the message is directed at this filter instance
      */
     protected boolean isTarget(IPipeMessage message) {
-        return ((FilterControlMessage)message).getName() == name;
+        return Objects.equals(((FilterControlMessage)message).getName(), name);
     }
 
     /**
@@ -0,0 +1,270 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * <P>Filter Chain.</P>
+ *
+ * <P>A run of Filters fused into one fitting. A normal message is
+ * passed through the filter function of every stage in a single loop,
+ * with one type check and one try/catch, instead of one
+ * <code>write</code> call per filter.</P>
+ *
+ * <P>Each stage keeps the name, filter function, parameters and mode
+ * of the Filter it was made from, and a FilterControlMessage is
+ * handled by the first stage it is targeted at, as it would have been
+ * by the first Filter in the run with that name. Control messages
+ * not targeted at any stage are written through to the output.</P>
+ *
+ * <P>Use <code>compile</code> to fuse a connected run of Filters,
+ * then put the chain in the pipeline in place of the first of them.</P>
+ */
+public class FilterChain extends Pipe {
+
+    protected final String[] names;
+
+    protected final BiConsumer<IPipeMessage, Object>[] filters;
+
+    protected final Object[] params;
+
+    // Whether each stage is in BYPASS mode
+    protected final boolean[] bypass;
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>Copies the state of the filters. Their own outputs are
+     * ignored; connect the chain's output as usual.</P>
+     *
+     * @param output output pipe
+     * @param stages the filters, in the order messages pass through them
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public FilterChain(IPipeFitting output, List<Filter> stages) {
+        super(output);
+        int count = stages.size();
+        names = new String[count];
+        filters = new BiConsumer[count];
+        params = new Object[count];
+        bypass = new boolean[count];
+        for(int i = 0; i < count; i++) {
+            Filter stage = stages.get(i);
+            names[i] = stage.name;
+            filters[i] = stage.filter;
+            params[i] = stage.params;
+            bypass[i] = stage.modeKind == FilterControlMessage.KIND_BYPASS;
+        }
+    }
+
+    /**
+     * <P>Compile a run of connected Filters.</P>
+     *
+     * <P>Follows the outputs from the first filter for as long as
+     * they are Filters, and fuses them into a chain connected to the
+     * output of the last. Subclasses of Filter end the run, since
+     * they may change how a message is filtered.</P>
+     *
+     * @param first the first filter of the run
+     * @return the fused chain
+     * @throws IllegalArgumentException if the first filter is a subclass of Filter
+     */
+    public static FilterChain compile(Filter first) {
+        if(first.getClass() != Filter.class) throw new IllegalArgumentException("Cannot fuse " + first.getClass().getName());
+        List<Filter> stages = new ArrayList<>();
+        IPipeFitting fitting = first;
+        while(fitting != null && fitting.getClass() == Filter.class) {
+            stages.add((Filter)fitting);
+            fitting = ((Filter)fitting).output;
+        }
+        return new FilterChain(stages.get(stages.size() - 1).output, stages);
+    }
+
+    /**
+     * <P>Get the number of fused filters.</P>
+     *
+     * @return the number of stages
+     */
+    public int getStageCount() {
+        return names.length;
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are filtered by every stage not in BYPASS
+     * mode and then written to the output. A filter that throws
+     * stops the message and false is returned. Control messages are
+     * handled as described for the class.</P>
+     *
+     * @return Boolean True if no filter throws an error and subsequent operations
+     * in the pipeline succede.
+     */
+    public boolean write(IPipeMessage message) {
+        boolean success = true;
+
+        switch (message.getKind()) {
+
+            // Filter normal messages through every stage
+            case Message.KIND_NORMAL:
+                try {
+                    applyFilters(message);
+                    success = output.write(message);
+                } catch (Exception exception) {
+                    return false;
+                }
+                break;
+
+            // Accept control messages targeted at a stage
+            case FilterControlMessage.KIND_SET_PARAMS:
+            case FilterControlMessage.KIND_SET_FILTER:
+            case FilterControlMessage.KIND_BYPASS:
+            case FilterControlMessage.KIND_FILTER:
+                if(!control((FilterControlMessage)message)) success = output.write(message);
+                break;
+
+            // Write control messages for other fittings through
+            default:
+                success = output.write(message);
+        }
+        return success;
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * <P>As with a Filter, room is checked before the stages run, and
+     * a fitting that fills up after they ran is reported as PARTIAL.
+     * With no output connected, a normal message is DROPPED.</P>
+     *
+     * @param message the message to handle
+     * @return the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        switch (message.getKind()) {
+
+            // Filter normal messages through every stage
+            case Message.KIND_NORMAL:
+                try {
+                    if(output == null) return WriteOutcome.DROPPED;
+                    if(!output.hasRoom(message)) return WriteOutcome.FULL;
+                    applyFilters(message);
+                    return output.offer(message).afterAction();
+                } catch (Exception exception) {
+                    return WriteOutcome.DROPPED;
+                }
+
+            // Accept control messages targeted at a stage
+            case FilterControlMessage.KIND_SET_PARAMS:
+            case FilterControlMessage.KIND_SET_FILTER:
+            case FilterControlMessage.KIND_BYPASS:
+            case FilterControlMessage.KIND_FILTER:
+                if(control((FilterControlMessage)message)) return WriteOutcome.ACCEPTED;
+                return output.offer(message);
+
+            // Write control messages for other fittings through
+            default:
+                return output.offer(message);
+        }
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages.</P>
+     *
+     * <P>Each message is handled as by <code>write</code>, in order,
+     * and the messages that pass are written to the output as one
+     * batch.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean True if no filter throws an error and subsequent operations
+     * in the pipeline succede.
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        List<IPipeMessage> batch = new ArrayList<>(messages.size());
+
+        for(IPipeMessage message : messages) {
+            switch (message.getKind()) {
+                case Message.KIND_NORMAL:
+                    try {
+                        applyFilters(message);
+                        batch.add(message);
+                    } catch (Exception exception) {
+                        success = false;
+                    }
+                    break;
+
+                case FilterControlMessage.KIND_SET_PARAMS:
+                case FilterControlMessage.KIND_SET_FILTER:
+                case FilterControlMessage.KIND_BYPASS:
+                case FilterControlMessage.KIND_FILTER:
+                    if(!control((FilterControlMessage)message)) batch.add(message);
+                    break;
+
+                default:
+                    batch.add(message);
+            }
+        }
+
+        if(!batch.isEmpty()) {
+            try {
+                if(!output.writeBatch(batch)) success = false;
+            } catch (Exception exception) {
+                return false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * <P>Pass the message through every stage not in BYPASS mode.</P>
+     *
+     * @param message the message to filter
+     */
+    protected void applyFilters(IPipeMessage message) {
+        for(int i = 0; i < filters.length; i++) {
+            if(!bypass[i]) filters[i].accept(message, params[i]);
+        }
+    }
+
+    /**
+     * <P>Act on a control message if it is targeted at a stage.</P>
+     *
+     * @param message the control message
+     * @return true if a stage was targeted
+     */
+    protected synchronized boolean control(FilterControlMessage message) {
+        for(int i = 0; i < names.length; i++) {
+            if(!Objects.equals(message.getName(), names[i])) continue;
+            switch (message.getKind()) {
+                case FilterControlMessage.KIND_SET_PARAMS:
+                    params[i] = message.getParams();
+                    break;
+                case FilterControlMessage.KIND_SET_FILTER:
+                    filters[i] = message.getFilter();
+                    break;
+                case FilterControlMessage.KIND_BYPASS:
+                case FilterControlMessage.KIND_FILTER:
+                    bypass[i] = message.getKind() == FilterControlMessage.KIND_BYPASS;
+                    break;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -9,10 +9,13 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -62,6 +65,16 @@ public class Junction {
      */
     protected ConcurrentHashMap<String, String> pipeTypesMap = new ConcurrentHashMap<>();
 
+    /**
+     * <P>The map of OUTPUT pipe names to the listeners waking blocked senders</P>
+     */
+    protected ConcurrentHashMap<String, Runnable> demandWatchesMap = new ConcurrentHashMap<>();
+
+    // Lock blocked senders wait on, and the count of demand signals
+    protected final Object demand = new Object();
+
+    protected long demandCount = 0;
+
     // Constructor.
     public Junction() {
 
@@ -121,7 +134,7 @@ public class Junction {
      * @return whether an INPUT pipe is registered with that name.
      */
     public boolean hasInputPipe(String name) {
-        return hasPipe(name) && pipeTypesMap.get(name) == INPUT;
+        return hasPipe(name) && INPUT.equals(pipeTypesMap.get(name));
     }
 
     /**
@@ -131,7 +144,7 @@ public class Junction {
      * @return whether an OUTPUT pipe is registered with that name.
      */
     public boolean hasOutputPipe(String name) {
-        return hasPipe(name) && pipeTypesMap.get(name) == OUTPUT;
+        return hasPipe(name) && OUTPUT.equals(pipeTypesMap.get(name));
     }
 
     /**
@@ -154,6 +167,8 @@ public class Junction {
                     outputPipes.remove(name);
                     break;
             }
+            Runnable watch = demandWatchesMap.remove(name);
+            if(watch != null) pipesMap.get(name).removeDemandListener(watch);
             pipesMap.remove(name);
             pipeTypesMap.remove(name);
         }
@@ -182,10 +197,27 @@ public class Junction {
      * @return true if listener connection was successful
      */
     public boolean addPipeListener(String inputPipeName, Object context, Consumer<IPipeMessage> listener) {
+        return addPipeListener(inputPipeName, context, listener, null);
+    }
+
+    /**
+     * <P>Add a PipeListener to an INPUT pipe, delivering messages on an executor.</P>
+     *
+     * <P>Messages are handed to the executor in order and the
+     * listener receives them one at a time, so a listener that
+     * blocks does not hold up the core writing to the pipe.</P>
+     *
+     * @param inputPipeName the INPUT pipe to add a PipeListener to
+     * @param context the calling context or 'this' object
+     * @param listener the function on the context to call
+     * @param executor executor to deliver messages on, or null to deliver on the writing thread
+     * @return true if listener connection was successful
+     */
+    public boolean addPipeListener(String inputPipeName, Object context, Consumer<IPipeMessage> listener, Executor executor) {
         boolean success = false;
         if(hasInputPipe(inputPipeName)) {
             IPipeFitting pipe = pipesMap.get(inputPipeName);
-            success = pipe.connect(new PipeListener(context, listener));
+            success = pipe.connect(new PipeListener(context, listener, executor));
         }
         return success;
     }
@@ -205,4 +237,106 @@ public class Junction {
         }
         return success;
     }
+
+    /**
+     * <P>Offer a message on an OUTPUT pipe.</P>
+     *
+     * <P>Sends the message as <code>sendMessage</code> does, but
+     * tells the caller whether a message that was not accepted was
+     * rejected by a full fitting, and so may be sent again later.</P>
+     *
+     * @param outputPipeName the OUTPUT pipe to send the message on
+     * @param message the IPipeMessage to send
+     * @return the outcome, or DROPPED if there is no such OUTPUT pipe
+     */
+    public WriteOutcome offerMessage(String outputPipeName, IPipeMessage message) {
+        WriteOutcome outcome = WriteOutcome.DROPPED;
+        if(hasOutputPipe(outputPipeName)) {
+            IPipeFitting pipe = pipesMap.get(outputPipeName);
+            outcome = pipe.offer(message);
+        }
+        return outcome;
+    }
+
+    /**
+     * <P>Send a message on an OUTPUT pipe, waiting for room.</P>
+     *
+     * <P>If a fitting on the pipe is full, the calling thread waits,
+     * without polling, until the pipe reports demand and then sends
+     * the message again, until it is accepted or the timeout
+     * elapses.</P>
+     *
+     * <P>The message is only sent again if the pipe reported FULL,
+     * meaning no fitting acted on it. If it reported PARTIAL, because
+     * a fitting filled up after others had already filtered the
+     * message or written it to another branch, sending it again would
+     * repeat that, so false is returned at once.</P>
+     *
+     * <P>Demand is reported by the fittings connected to the pipe,
+     * including ones connected after it is first sent a message this
+     * way.</P>
+     *
+     * @param outputPipeName the OUTPUT pipe to send the message on
+     * @param message the IPipeMessage to send
+     * @param timeout the longest time to wait for room
+     * @param unit the unit of the timeout
+     * @return true if message was successfully written to the named pipe
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean sendMessage(String outputPipeName, IPipeMessage message, long timeout, TimeUnit unit) throws InterruptedException {
+        if(!hasOutputPipe(outputPipeName)) return false;
+        IPipeFitting pipe = pipesMap.get(outputPipeName);
+        demandWatchesMap.computeIfAbsent(outputPipeName, name -> {
+            Runnable watch = this::signalDemand;
+            pipe.addDemandListener(watch);
+            return watch;
+        });
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(true) {
+            long seen;
+            synchronized (demand) {
+                seen = demandCount;
+            }
+            WriteOutcome outcome = pipe.offer(message);
+            if(outcome != WriteOutcome.FULL) return outcome.isAccepted();
+
+            synchronized (demand) {
+                while(demandCount == seen) {
+                    long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0) return false;
+                    TimeUnit.NANOSECONDS.timedWait(demand, remaining);
+                }
+            }
+        }
+    }
+
+    /**
+     * <P>Tell a listener of demand on an OUTPUT pipe.</P>
+     *
+     * <P>The listener is added to the fittings connected to the
+     * pipe, and is called when any of them has room again.</P>
+     *
+     * @param outputPipeName the OUTPUT pipe to listen to
+     * @param listener the listener to call when there is room
+     * @return true if there is such an OUTPUT pipe
+     */
+    public boolean addDemandListener(String outputPipeName, Runnable listener) {
+        boolean success = false;
+        if(hasOutputPipe(outputPipeName)) {
+            pipesMap.get(outputPipeName).addDemandListener(listener);
+            success = true;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Wake the senders waiting for demand.</P>
+     */
+    protected void signalDemand() {
+        synchronized (demand) {
+            demandCount++;
+            demand.notifyAll();
+        }
+    }
 }
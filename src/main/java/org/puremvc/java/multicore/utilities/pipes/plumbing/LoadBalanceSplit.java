@@ -0,0 +1,341 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * <P>Load Balancing Pipe Splitter.</P>
+ *
+ * <P>Writes each normal message to one of its outputs, chosen by a
+ * strategy: round-robin, random, or least loaded. If the chosen
+ * output's <code>write</code> returns false, the next outputs are
+ * tried in turn, and the write only fails if none accepts it.</P>
+ *
+ * <P>Choosing an output takes no lock and allocates nothing; the
+ * strategies keep their state in atomic counters. As with
+ * <code>TeeSplit</code>, the outputs are held in an array that is
+ * replaced, never modified, when they change. Other messages, such
+ * as queue control messages, are written to every output.</P>
+ */
+public class LoadBalanceSplit implements IPipeFitting {
+
+    /**
+     * <P>Load function measuring a buffering fitting by the number of
+     * messages it holds: a Queue, ConcurrentQueue, OffHeapQueue,
+     * PersistentQueue or AsyncPipe. Other outputs have no load. The sizes are read without taking the fittings' locks.</P>
+     */
+    public static final ToIntFunction<IPipeFitting> QUEUE_SIZE = LoadBalanceSplit::queueSize;
+
+    // Snapshot of the connected outputs, replaced on every change
+    protected volatile IPipeFitting[] outputs = new IPipeFitting[0];
+
+    protected final Strategy strategy;
+
+    protected final LongAdder skippedCount = new LongAdder();
+
+    // Demand listeners, passed on to every output including ones connected later
+    protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>Balances by round-robin.</P>
+     */
+    public LoadBalanceSplit() {
+        this(roundRobin());
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param strategy the strategy choosing the output for each message
+     */
+    public LoadBalanceSplit(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * <P>Strategy choosing the outputs in turn.</P>
+     *
+     * @return a new strategy
+     */
+    public static Strategy roundRobin() {
+        AtomicInteger next = new AtomicInteger();
+        return outputs -> Math.floorMod(next.getAndIncrement(), outputs.length);
+    }
+
+    /**
+     * <P>Strategy choosing an output at random.</P>
+     *
+     * @return a new strategy
+     */
+    public static Strategy random() {
+        return outputs -> ThreadLocalRandom.current().nextInt(outputs.length);
+    }
+
+    /**
+     * <P>Strategy choosing the output with the least load.</P>
+     *
+     * <P>Ties go to the outputs in turn, so outputs with no load
+     * are still shared out evenly.</P>
+     *
+     * @param load function measuring the outstanding work of an output, such as <code>QUEUE_SIZE</code>
+     * @return a new strategy
+     */
+    public static Strategy leastLoaded(ToIntFunction<IPipeFitting> load) {
+        AtomicInteger next = new AtomicInteger();
+        return outputs -> {
+            int start = Math.floorMod(next.getAndIncrement(), outputs.length);
+            int best = start;
+            int least = Integer.MAX_VALUE;
+            for(int i = 0; i < outputs.length; i++) {
+                int index = Math.floorMod(start + i, outputs.length);
+                int current = load.applyAsInt(outputs[index]);
+                if(current < least) {
+                    least = current;
+                    best = index;
+                }
+            }
+            return best;
+        };
+    }
+
+    /**
+     * <P>Get the number of messages a buffering fitting holds.</P>
+     *
+     * @param output the output to measure
+     * @return the number of messages held, 0 if the output does not buffer
+     */
+    protected static int queueSize(IPipeFitting output) {
+        if(output instanceof Queue) return ((Queue)output).getSize();
+        if(output instanceof ConcurrentQueue) return ((ConcurrentQueue)output).getSize();
+        if(output instanceof OffHeapQueue) return ((OffHeapQueue)output).getSize();
+        if(output instanceof PersistentQueue) return ((PersistentQueue)output).getSize();
+        if(output instanceof AsyncPipe) return ((AsyncPipe)output).getSize();
+        return 0;
+    }
+
+    /**
+     * <P>Connect an output IPipeFitting.</P>
+     *
+     * @param output the IPipeFitting to connect for output.
+     * @return true
+     */
+    public synchronized boolean connect(IPipeFitting output) {
+        IPipeFitting[] current = outputs;
+        IPipeFitting[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = output;
+        outputs = next;
+        if(output != null) {
+            for(Runnable listener : demandListeners) {
+                output.addDemandListener(listener);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <P>Disconnect the most recently connected output fitting. (LIFO)</P>
+     *
+     * @return the disconnected output, or null if there are none
+     */
+    public synchronized IPipeFitting disconnect() {
+        IPipeFitting[] current = outputs;
+        if(current.length == 0) return null;
+        outputs = Arrays.copyOf(current, current.length - 1);
+        removeDemandListeners(current[current.length - 1]);
+        return current[current.length - 1];
+    }
+
+    /**
+     * <P>Disconnect a given output fitting.</P>
+     *
+     * @param target the IPipeFitting to disconnect
+     * @return the disconnected output, or null if it was not connected
+     */
+    public synchronized IPipeFitting disconnectFitting(IPipeFitting target) {
+        IPipeFitting[] current = outputs;
+        for(int i = 0; i < current.length; i++) {
+            if(Objects.equals(target, current[i])) {
+                IPipeFitting[] next = new IPipeFitting[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                outputs = next;
+                removeDemandListeners(target);
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <P>Write the message to one output.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if there are no outputs, or none accepted the message
+     */
+    public boolean write(IPipeMessage message) {
+        IPipeFitting[] temp = outputs;
+        if(message.getKind() != Message.KIND_NORMAL) return broadcast(temp, message);
+        if(temp.length == 0) return false;
+
+        int start = Math.floorMod(strategy.select(temp), temp.length);
+        for(int i = 0; i < temp.length; i++) {
+            if(temp[Math.floorMod(start + i, temp.length)].write(message)) return true;
+            skippedCount.increment();
+        }
+        return false;
+    }
+
+    /**
+     * <P>Offer the message to one output.</P>
+     *
+     * <P>If no output accepts it, the outcome is PARTIAL if an output
+     * reported PARTIAL, FULL if an output was full, otherwise DROPPED.
+     * An output that is full or drops a message has not acted on it,
+     * so trying the others does not make the outcome PARTIAL.</P>
+     *
+     * @param message the message to write
+     * @return the outcome
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        IPipeFitting[] temp = outputs;
+        if(message.getKind() != Message.KIND_NORMAL) return WriteOutcome.of(broadcast(temp, message));
+        if(temp.length == 0) return WriteOutcome.DROPPED;
+
+        WriteOutcome outcome = WriteOutcome.DROPPED;
+        int start = Math.floorMod(strategy.select(temp), temp.length);
+        for(int i = 0; i < temp.length; i++) {
+            WriteOutcome current = temp[Math.floorMod(start + i, temp.length)].offer(message);
+            if(current.isAccepted()) return current;
+            skippedCount.increment();
+            if(current == WriteOutcome.PARTIAL || outcome == WriteOutcome.DROPPED) outcome = current;
+        }
+        return outcome;
+    }
+
+    /**
+     * <P>Write the batch of messages, each to one output.</P>
+     *
+     * <P>Every message is balanced on its own, so a batch is spread
+     * across the outputs.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean false if any message was not accepted
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * @param message the message to write
+     * @return true if any output has room
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        IPipeFitting[] temp = outputs;
+        if(temp.length == 0) return true;
+        for(IPipeFitting output : temp) {
+            if(output != null && output.hasRoom(message)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * <P>Pass a demand listener on to all connected outputs, and to
+     * any output connected later.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public synchronized void addDemandListener(Runnable listener) {
+        demandListeners.addIfAbsent(listener);
+        for(IPipeFitting output : outputs) {
+            if(output != null) output.addDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Pass the removal of a demand listener on to all connected outputs.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeDemandListener(Runnable listener) {
+        demandListeners.remove(listener);
+        for(IPipeFitting output : outputs) {
+            if(output != null) output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Get the number of times a chosen output did not accept a message.</P>
+     *
+     * @return the count
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    /**
+     * <P>Remove the demand listeners from a disconnected output.</P>
+     *
+     * @param output the disconnected output
+     */
+    protected void removeDemandListeners(IPipeFitting output) {
+        if(output == null) return;
+        for(Runnable listener : demandListeners) {
+            output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Write a message to every output.</P>
+     *
+     * @param outputs the outputs
+     * @param message the message to write
+     * @return Boolean false if any output failed
+     */
+    protected boolean broadcast(IPipeFitting[] outputs, IPipeMessage message) {
+        boolean success = true;
+        for(IPipeFitting output : outputs) {
+            if(!output.write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Chooses the output for a message.</P>
+     */
+    public interface Strategy {
+
+        /**
+         * <P>Choose an output.</P>
+         *
+         * @param outputs the connected outputs, never empty
+         * @return the index of the output to try first, taken modulo the number of outputs
+         */
+        int select(IPipeFitting[] outputs);
+    }
+}
@@ -0,0 +1,450 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IMessageCodec;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <P>Off-Heap Pipe Queue.</P>
+ *
+ * <P>A Queue that holds its messages as bytes in a direct
+ * <code>ByteBuffer</code> rather than as objects on the Java heap,
+ * so that millions of buffered messages add nothing for the garbage
+ * collector to trace. Messages are encoded with an
+ * <code>IMessageCodec</code> when stored and decoded again as they
+ * are written out on FLUSH.</P>
+ *
+ * <P>It answers the same FLUSH, SORT and FIFO control messages as
+ * <code>Queue</code>, with the same ordering: messages stored in SORT
+ * mode, and any stored before them, are written by priority, messages
+ * of equal priority in the order they were stored; messages stored in
+ * FIFO mode after the last SORT mode message follow in the order they
+ * were stored.</P>
+ *
+ * <P>The buffer is a ring of fixed capacity. A normal message that
+ * does not fit is not stored; <code>write</code> returns false and
+ * <code>offer</code> returns <code>WriteOutcome.FULL</code>, until a
+ * FLUSH makes room and the demand listeners are told. Messages are
+ * written out in batches of <code>FLUSH_BATCH</code>.</P>
+ */
+public class OffHeapQueue extends Pipe {
+
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+
+    public static final int FLUSH_BATCH = 256;
+
+    // Each record is its payload length and priority followed by the payload
+    protected static final int RECORD_HEADER = 8;
+
+    protected String mode = QueueControlMessage.SORT;
+
+    // Kind of the mode type, checked on each store
+    protected int modeKind = QueueControlMessage.KIND_SORT;
+
+    protected final IMessageCodec codec;
+
+    protected final ByteBuffer ring;
+
+    protected final int capacity;
+
+    // Byte positions of the oldest record and of the end of the newest
+    protected long head;
+
+    protected long tail;
+
+    // Sequence numbers of the oldest record and of the next to be stored
+    protected long first;
+
+    protected long next;
+
+    // Number of stored messages, readable without the lock
+    protected volatile int size;
+
+    // Records before this sequence number are flushed by priority
+    protected long sortedThrough;
+
+    // Held through a flush, so flushes run one at a time without holding the queue's lock
+    protected final Object flushLock = new Object();
+
+    protected boolean flushing;
+
+    protected ByteBuffer encodeBuffer = ByteBuffer.allocate(256);
+
+    protected ByteBuffer decodeBuffer = ByteBuffer.allocate(256);
+
+    protected final ByteBuffer headerBuffer = ByteBuffer.allocate(RECORD_HEADER);
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param codec codec for the stored messages
+     */
+    public OffHeapQueue(IMessageCodec codec) {
+        this(codec, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param codec codec for the stored messages
+     * @param capacity size of the buffer in bytes
+     */
+    public OffHeapQueue(IMessageCodec codec, int capacity) {
+        this(null, codec, capacity);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param codec codec for the stored messages
+     * @param capacity size of the buffer in bytes
+     */
+    public OffHeapQueue(IPipeFitting output, IMessageCodec codec, int capacity) {
+        super(output);
+        if(capacity <= RECORD_HEADER) throw new IllegalArgumentException("Capacity too small: " + capacity);
+        this.codec = codec;
+        this.capacity = capacity;
+        this.ring = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are encoded and stored. If there is no
+     * room for a message it is not stored and false is returned.</P>
+     *
+     * <P>The FLUSH message type tells the Queue to write all
+     * stored messages to the ouptut PipeFitting, then
+     * return to normal enqueing operation.</P>
+     *
+     * <P>The SORT message type tells the Queue to sort all
+     * <I>subsequent</I> incoming messages by priority. If there
+     * are unflushed messages in the queue, they will not be
+     * sorted unless a new message is sent before the next FLUSH.
+     * Sorting-by-priority behavior continues even after a FLUSH,
+     * and can be turned off by sending a FIFO message, which is
+     * the default behavior for enqueue/dequeue.</P>
+     */
+    public boolean write(IPipeMessage message) {
+        boolean success = true;
+
+        switch (message.getKind()) {
+            // Store normal messages
+            case Message.KIND_NORMAL:
+                success = this.store(message).isAccepted();
+                break;
+
+            // Flush the queue
+            case QueueControlMessage.KIND_FLUSH:
+                success = this.flush();
+                signalDemand();
+                break;
+
+            // Put Queue into Priority Sort or FIFO mode
+            case QueueControlMessage.KIND_SORT:
+            case QueueControlMessage.KIND_FIFO:
+                synchronized (this) {
+                    mode = message.getType();
+                    modeKind = message.getKind();
+                }
+                break;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * @param message the message to handle
+     * @return FULL if a normal message does not fit, DROPPED if it can never fit
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() == Message.KIND_NORMAL) return store(message);
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages, each as by <code>write</code>.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean false if a message was not stored or a flush in the batch failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        for(IPipeMessage message : messages) {
+            if(!write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * <P>The message is not encoded to find its size, so this only
+     * tells whether the buffer has room for a record header.</P>
+     *
+     * @param message the message to write
+     * @return false if the buffer is full
+     */
+    public synchronized boolean hasRoom(IPipeMessage message) {
+        return message.getKind() != Message.KIND_NORMAL || tail - head + RECORD_HEADER < capacity;
+    }
+
+    /**
+     * <P>Get the number of stored messages.</P>
+     *
+     * @return the number of messages waiting for a flush
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * <P>Get the number of bytes in use.</P>
+     *
+     * @return the number of bytes of the buffer holding messages
+     */
+    public synchronized long getUsedBytes() {
+        return tail - head;
+    }
+
+    /**
+     * <P>Store a message.</P>
+     *
+     * @param message the IPipeMessage to enqueue.
+     * @return FULL if there was no room, DROPPED if the message can never fit
+     */
+    protected synchronized WriteOutcome store(IPipeMessage message) {
+        ByteBuffer record = encode(message);
+        if(record == null) return WriteOutcome.DROPPED;
+        if(tail - head + record.remaining() > capacity) return WriteOutcome.FULL;
+
+        int length = record.remaining();
+        put(tail, record);
+        tail += length;
+        next++;
+        size = (int)(next - first);
+        if(modeKind == QueueControlMessage.KIND_SORT) sortedThrough = next;
+        return WriteOutcome.ACCEPTED;
+    }
+
+    /**
+     * <P>Flush the queue.</P>
+     *
+     * <P>Decodes and writes out the messages stored before the flush
+     * started, a batch at a time. Each batch is taken out of the
+     * buffer under the lock and written after releasing it, so
+     * writers are not held up by the output, and messages stored
+     * while it is running, for instance by an output that writes back
+     * into this queue, are held for the next flush.</P>
+     *
+     * <P>Messages are taken out before they are written, so if the
+     * output throws, the rest of the batch is lost, as with a
+     * <code>Queue</code>, rather than written again.</P>
+     *
+     * @return Boolean true if all messages written successfully.
+     */
+    protected boolean flush() {
+        synchronized (flushLock) {
+            if(flushing) return true;
+            flushing = true;
+            try {
+                long end;
+                long sorted;
+                synchronized (this) {
+                    end = next;
+                    sorted = Math.min(sortedThrough, end) - first;
+                }
+
+                boolean success = true;
+                if(sorted > 0) success = flushSorted((int)sorted);
+
+                List<IPipeMessage> batch;
+                while(!(batch = takeBatch(end)).isEmpty()) {
+                    success = output.writeBatch(batch) && success;
+                }
+                return success;
+            } finally {
+                flushing = false;
+            }
+        }
+    }
+
+    /**
+     * <P>Take the next batch of records stored before a sequence number.</P>
+     *
+     * @param end sequence number of the first record not to take
+     * @return the decoded messages, empty when there are none left
+     */
+    protected synchronized List<IPipeMessage> takeBatch(long end) {
+        ArrayList<IPipeMessage> batch = new ArrayList<>((int)Math.max(0, Math.min(end - first, FLUSH_BATCH)));
+        while(first < end && batch.size() < FLUSH_BATCH) {
+            batch.add(decode(head));
+            head += RECORD_HEADER + headerBuffer.getInt(0);
+            first++;
+        }
+        size = (int)(next - first);
+        return batch;
+    }
+
+    /**
+     * <P>Flush the oldest records by priority.</P>
+     *
+     * <P>Only the record headers are read to order the records;
+     * each is decoded, under the lock, when its batch is taken. The
+     * records are counted out of the queue at the start, and their
+     * space is reclaimed once all of them have been taken.</P>
+     *
+     * @param count the number of records to flush
+     * @return Boolean true if all messages written successfully.
+     */
+    protected boolean flushSorted(int count) {
+        // Priority in the high bits, sequence in the low, so the sort is stable
+        long[] keys = new long[count];
+        long[] positions = new long[count];
+        long position;
+        synchronized (this) {
+            position = head;
+            for(int i = 0; i < count; i++) {
+                get(position, headerBuffer, RECORD_HEADER);
+                keys[i] = ((long)headerBuffer.getInt(4) << 32) | i;
+                positions[i] = position;
+                position += RECORD_HEADER + headerBuffer.getInt(0);
+            }
+            first += count;
+            size = (int)(next - first);
+        }
+        Arrays.sort(keys);
+
+        boolean success = true;
+        try {
+            for(int start = 0; start < count; start += FLUSH_BATCH) {
+                int stop = Math.min(count, start + FLUSH_BATCH);
+                ArrayList<IPipeMessage> batch = new ArrayList<>(stop - start);
+                synchronized (this) {
+                    for(int i = start; i < stop; i++) {
+                        batch.add(decode(positions[(int)keys[i]]));
+                    }
+                }
+                success = output.writeBatch(batch) && success;
+            }
+        } finally {
+            synchronized (this) {
+                head = position;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * <P>An OffHeapQueue tells its demand listeners itself, when a flush makes room.</P>
+     *
+     * @return false
+     */
+    protected boolean passesDemand() {
+        return false;
+    }
+
+    /**
+     * <P>Encode a message as a record.</P>
+     *
+     * @param message the message to encode
+     * @return the record, ready to read, or null if it can never fit
+     */
+    protected ByteBuffer encode(IPipeMessage message) {
+        while(true) {
+            encodeBuffer.clear();
+            encodeBuffer.position(RECORD_HEADER);
+            try {
+                codec.encode(message, encodeBuffer);
+            } catch (BufferOverflowException exception) {
+                if(encodeBuffer.capacity() >= capacity) return null;
+                encodeBuffer = ByteBuffer.allocate((int)Math.min(capacity, 2L * encodeBuffer.capacity()));
+                continue;
+            }
+            encodeBuffer.putInt(0, encodeBuffer.position() - RECORD_HEADER);
+            encodeBuffer.putInt(4, message.getPriority());
+            encodeBuffer.flip();
+            return encodeBuffer;
+        }
+    }
+
+    /**
+     * <P>Decode the record at a position.</P>
+     *
+     * <P>Leaves the record header in <code>headerBuffer</code>.</P>
+     *
+     * @param position byte position of the record
+     * @return the decoded message
+     */
+    protected IPipeMessage decode(long position) {
+        get(position, headerBuffer, RECORD_HEADER);
+        int length = headerBuffer.getInt(0);
+        if(decodeBuffer.capacity() < length) decodeBuffer = ByteBuffer.allocate(Math.max(length, 2 * decodeBuffer.capacity()));
+        get(position + RECORD_HEADER, decodeBuffer, length);
+        return codec.decode(decodeBuffer);
+    }
+
+    /**
+     * <P>Copy bytes into the ring, wrapping at its end.</P>
+     *
+     * @param position byte position to write at
+     * @param source the bytes to copy, between its position and limit
+     */
+    protected void put(long position, ByteBuffer source) {
+        int index = (int)(position % capacity);
+        int length = source.remaining();
+        int part = Math.min(length, capacity - index);
+        int limit = source.limit();
+
+        ring.clear();
+        ring.position(index);
+        source.limit(source.position() + part);
+        ring.put(source);
+        source.limit(limit);
+        if(part < length) {
+            ring.position(0);
+            ring.put(source);
+        }
+    }
+
+    /**
+     * <P>Copy bytes out of the ring, wrapping at its end.</P>
+     *
+     * @param position byte position to read from
+     * @param target the buffer to fill, which is cleared first and flipped after
+     * @param length the number of bytes to copy
+     */
+    protected void get(long position, ByteBuffer target, int length) {
+        int index = (int)(position % capacity);
+        int part = Math.min(length, capacity - index);
+
+        target.clear();
+        ring.limit(index + part);
+        ring.position(index);
+        target.put(ring);
+        if(part < length) {
+            ring.limit(length - part);
+            ring.position(0);
+            target.put(ring);
+        }
+        target.flip();
+    }
+}
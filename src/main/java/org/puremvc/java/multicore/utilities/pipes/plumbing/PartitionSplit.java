@@ -0,0 +1,355 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * <P>Partitioning Pipe Splitter.</P>
+ *
+ * <P>Writes each normal message to exactly one of its outputs, chosen
+ * by the hash of a key taken from the message, so that messages with
+ * the same key always go to the same output and keep their order.</P>
+ *
+ * <P>Outputs are placed on a consistent hash ring, each at a number
+ * of virtual nodes. When an output is connected or disconnected,
+ * only the keys on its part of the ring move, about 1/N of them, so
+ * consumers can be added under load without rebalancing every key.</P>
+ *
+ * <P>Like <code>TeeSplit</code>, the ring is replaced, never modified,
+ * when outputs change, so writing takes no lock. Other messages, such
+ * as queue control messages, are written to every output.</P>
+ */
+public class PartitionSplit implements IPipeFitting {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    protected final Function<IPipeMessage, Object> keyExtractor;
+
+    protected final int virtualNodes;
+
+    // Snapshot of the outputs and their ring, replaced on every change
+    protected volatile Ring ring;
+
+    // Demand listeners, passed on to every output including ones connected later
+    protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param keyExtractor function returning the partition key of a message
+     */
+    public PartitionSplit(Function<IPipeMessage, Object> keyExtractor) {
+        this(keyExtractor, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param keyExtractor function returning the partition key of a message
+     * @param virtualNodes number of places on the ring for each output
+     */
+    public PartitionSplit(Function<IPipeMessage, Object> keyExtractor, int virtualNodes) {
+        if(virtualNodes <= 0) throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        this.keyExtractor = keyExtractor;
+        this.virtualNodes = virtualNodes;
+        this.ring = new Ring(new IPipeFitting[0], new long[0], 0, virtualNodes);
+    }
+
+    /**
+     * <P>Connect an output IPipeFitting.</P>
+     *
+     * <P>The output takes over about 1/N of the keys.</P>
+     *
+     * @param output the IPipeFitting to connect for output.
+     * @return true
+     */
+    public synchronized boolean connect(IPipeFitting output) {
+        Ring current = ring;
+        IPipeFitting[] outputs = Arrays.copyOf(current.outputs, current.outputs.length + 1);
+        long[] ids = Arrays.copyOf(current.ids, current.ids.length + 1);
+        outputs[current.outputs.length] = output;
+        ids[current.ids.length] = current.nextId;
+        ring = new Ring(outputs, ids, current.nextId + 1, virtualNodes);
+        if(output != null) {
+            for(Runnable listener : demandListeners) {
+                output.addDemandListener(listener);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <P>Disconnect the most recently connected output fitting. (LIFO)</P>
+     *
+     * @return the disconnected output, or null if there are none
+     */
+    public synchronized IPipeFitting disconnect() {
+        IPipeFitting[] outputs = ring.outputs;
+        if(outputs.length == 0) return null;
+        return disconnectFitting(outputs[outputs.length - 1]);
+    }
+
+    /**
+     * <P>Disconnect a given output fitting.</P>
+     *
+     * <P>Only the keys of the disconnected output move, spread
+     * across the remaining outputs.</P>
+     *
+     * @param target the IPipeFitting to disconnect
+     * @return the disconnected output, or null if it was not connected
+     */
+    public synchronized IPipeFitting disconnectFitting(IPipeFitting target) {
+        Ring current = ring;
+        for(int i = 0; i < current.outputs.length; i++) {
+            if(Objects.equals(target, current.outputs[i])) {
+                int length = current.outputs.length - 1;
+                IPipeFitting[] outputs = new IPipeFitting[length];
+                long[] ids = new long[length];
+                System.arraycopy(current.outputs, 0, outputs, 0, i);
+                System.arraycopy(current.outputs, i + 1, outputs, i, length - i);
+                System.arraycopy(current.ids, 0, ids, 0, i);
+                System.arraycopy(current.ids, i + 1, ids, i, length - i);
+                ring = new Ring(outputs, ids, current.nextId, virtualNodes);
+                if(target != null) {
+                    for(Runnable listener : demandListeners) {
+                        target.removeDemandListener(listener);
+                    }
+                }
+                return current.outputs[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <P>Get the output a key is partitioned to.</P>
+     *
+     * @param key the partition key
+     * @return the output, or null if there are none
+     */
+    public IPipeFitting partitionFor(Object key) {
+        return ring.lookup(key);
+    }
+
+    /**
+     * <P>Write the message to its partition.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if there are no outputs, or the output failed
+     */
+    public boolean write(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return broadcast(message);
+        IPipeFitting output = ring.lookup(keyExtractor.apply(message));
+        return output != null && output.write(message);
+    }
+
+    /**
+     * <P>Offer the message to its partition.</P>
+     *
+     * @param message the message to write
+     * @return the outcome from the output, or DROPPED if there are none
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return WriteOutcome.of(broadcast(message));
+        IPipeFitting output = ring.lookup(keyExtractor.apply(message));
+        return output == null ? WriteOutcome.DROPPED : output.offer(message);
+    }
+
+    /**
+     * <P>Write the batch of messages to their partitions.</P>
+     *
+     * <P>Each output is given the messages partitioned to it as one
+     * batch, in order. A message written to every output first
+     * writes out the batches built before it.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean false if there are no outputs, or an output failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        Ring current = ring;
+        Map<IPipeFitting, List<IPipeMessage>> batches = new LinkedHashMap<>();
+        for(IPipeMessage message : messages) {
+            if(message.getKind() != Message.KIND_NORMAL) {
+                success = writeBatches(batches) && success;
+                batches.clear();
+                success = broadcast(message) && success;
+                continue;
+            }
+            IPipeFitting output = current.lookup(keyExtractor.apply(message));
+            if(output == null) {
+                success = false;
+            } else {
+                batches.computeIfAbsent(output, fitting -> new ArrayList<>()).add(message);
+            }
+        }
+        return writeBatches(batches) && success;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * @param message the message to write
+     * @return false if the partition of a normal message has no room
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return true;
+        IPipeFitting output = ring.lookup(keyExtractor.apply(message));
+        return output == null || output.hasRoom(message);
+    }
+
+    /**
+     * <P>Pass a demand listener on to all connected outputs, and to
+     * any output connected later.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public synchronized void addDemandListener(Runnable listener) {
+        demandListeners.addIfAbsent(listener);
+        for(IPipeFitting output : ring.outputs) {
+            if(output != null) output.addDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Pass the removal of a demand listener on to all connected outputs.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeDemandListener(Runnable listener) {
+        demandListeners.remove(listener);
+        for(IPipeFitting output : ring.outputs) {
+            if(output != null) output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Write a message to every output.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if any output failed
+     */
+    protected boolean broadcast(IPipeMessage message) {
+        boolean success = true;
+        for(IPipeFitting output : ring.outputs) {
+            if(!output.write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Write batches to their outputs.</P>
+     *
+     * @param batches the batches by output
+     * @return Boolean false if any output failed
+     */
+    protected boolean writeBatches(Map<IPipeFitting, List<IPipeMessage>> batches) {
+        boolean success = true;
+        for(Map.Entry<IPipeFitting, List<IPipeMessage>> entry : batches.entrySet()) {
+            if(!entry.getKey().writeBatch(entry.getValue())) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Spread the bits of a hash (the MurmurHash3 finalizer).</P>
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    protected static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * <P>The outputs and their consistent hash ring.</P>
+     *
+     * <P>Each output has an id that stays the same while it is
+     * connected, and its virtual nodes are placed by the hash of
+     * that id, so they do not move when other outputs change.</P>
+     */
+    protected static class Ring {
+
+        protected final IPipeFitting[] outputs;
+
+        protected final long[] ids;
+
+        protected final long nextId;
+
+        // Sorted node hashes and the output at each
+        protected final long[] hashes;
+
+        protected final IPipeFitting[] owners;
+
+        /**
+         * <P>Constructor.</P>
+         *
+         * @param outputs the connected outputs
+         * @param ids the id of each output
+         * @param nextId the id for the next output connected
+         * @param virtualNodes number of places on the ring for each output
+         */
+        protected Ring(IPipeFitting[] outputs, long[] ids, long nextId, int virtualNodes) {
+            this.outputs = outputs;
+            this.ids = ids;
+            this.nextId = nextId;
+
+            int count = outputs.length * virtualNodes;
+            long[][] nodes = new long[count][];
+            for(int i = 0; i < outputs.length; i++) {
+                for(int node = 0; node < virtualNodes; node++) {
+                    nodes[i * virtualNodes + node] = new long[]{mix(ids[i] * 0x9e3779b97f4a7c15L + node), i};
+                }
+            }
+            Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+
+            hashes = new long[count];
+            owners = new IPipeFitting[count];
+            for(int n = 0; n < count; n++) {
+                hashes[n] = nodes[n][0];
+                owners[n] = outputs[(int)nodes[n][1]];
+            }
+        }
+
+        /**
+         * <P>Find the output for a key.</P>
+         *
+         * <P>The key's hash is looked up on the ring, and the first
+         * node at or after it owns the key.</P>
+         *
+         * @param key the partition key
+         * @return the output, or null if there are none
+         */
+        protected IPipeFitting lookup(Object key) {
+            if(owners.length == 0) return null;
+            long hash = mix(key == null ? 0 : key.hashCode());
+            int index = Arrays.binarySearch(hashes, hash);
+            if(index < 0) index = -index - 1;
+            if(index == owners.length) index = 0;
+            return owners[index];
+        }
+    }
+}
@@ -0,0 +1,649 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IMessageCodec;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * <P>Persistent Pipe Queue.</P>
+ *
+ * <P>A Queue that keeps its messages in memory-mapped files, so that
+ * messages waiting for a FLUSH survive the JVM dying. Messages are
+ * encoded with an <code>IMessageCodec</code> and appended to segment
+ * files in a directory; a cursor file records how far they have been
+ * flushed. A new <code>PersistentQueue</code> on the same directory
+ * replays the messages that had not been flushed.</P>
+ *
+ * <P>It answers the same FLUSH, SORT and FIFO control messages as
+ * <code>Queue</code>, with the same ordering, and can replace it in
+ * an existing pipeline. Delivery is at least once: the cursor is
+ * moved after the output's <code>writeBatch</code> has returned, so
+ * a crash during a flush replays that batch. As with
+ * <code>Queue</code>, a batch the output returns false for is not
+ * written again, since fittings deliver the messages they can before
+ * reporting the failure; the flush goes on and returns false. If
+ * <code>writeBatch</code> throws, the cursor is not moved past that
+ * batch, and the next FLUSH writes it again.</P>
+ *
+ * <P>Each record carries its length and a CRC-32 of its contents. On
+ * recovery, the records are read until one is missing, does not fit
+ * in its segment or fails its checksum; that is the end of the queue,
+ * and the rest of the segment is zero-filled and later segments are
+ * deleted, so appends after recovery are never followed by stale
+ * records.</P>
+ *
+ * <P>Appends are forced to disk as a group, every
+ * <code>syncEvery</code> messages, at the end of each
+ * <code>writeBatch</code>, on FLUSH and on <code>sync</code>. Messages
+ * appended since the last sync survive the JVM dying but not the
+ * operating system. Segments are deleted once all their messages have
+ * been flushed.</P>
+ */
+public class PersistentQueue extends Pipe {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static final int DEFAULT_SYNC_EVERY = 1024;
+
+    public static final int FLUSH_BATCH = 256;
+
+    public static final String SEGMENT_SUFFIX = ".segment";
+
+    public static final String CURSOR_FILE = "cursor";
+
+    // Each record is its total length, CRC, priority and flags followed by the payload
+    protected static final int RECORD_HEADER = 16;
+
+    // The CRC covers the priority, flags and payload
+    protected static final int CRC_START = 8;
+
+    // Flag for a record stored in SORT mode
+    protected static final int SORTED = 1;
+
+    protected String mode = QueueControlMessage.SORT;
+
+    // Kind of the mode type, checked on each store
+    protected int modeKind = QueueControlMessage.KIND_SORT;
+
+    protected final File directory;
+
+    protected final IMessageCodec codec;
+
+    protected final int segmentSize;
+
+    protected final int syncEvery;
+
+    // Mapped segments by index; a position p is in segment p / segmentSize
+    protected final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    protected final MappedByteBuffer cursor;
+
+    // Positions of the oldest unflushed record and of the end of the newest
+    protected long head;
+
+    protected long tail;
+
+    // Sequence numbers of the oldest unflushed record and of the next to be stored
+    protected long first;
+
+    protected long next;
+
+    // Number of stored messages, readable without the lock
+    protected volatile int size;
+
+    // Records before this sequence number are flushed by priority
+    protected long sortedThrough;
+
+    protected int unsynced;
+
+    protected boolean flushing;
+
+    protected ByteBuffer encodeBuffer = ByteBuffer.allocate(256);
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param directory directory for the queue files, created if missing
+     * @param codec codec for the stored messages
+     * @throws IOException if the files cannot be opened
+     */
+    public PersistentQueue(File directory, IMessageCodec codec) throws IOException {
+        this(null, directory, codec);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param directory directory for the queue files, created if missing
+     * @param codec codec for the stored messages
+     * @throws IOException if the files cannot be opened
+     */
+    public PersistentQueue(IPipeFitting output, File directory, IMessageCodec codec) throws IOException {
+        this(output, directory, codec, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_EVERY);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * <P>Opens the queue files in the directory and recovers any
+     * messages that had not been flushed.</P>
+     *
+     * @param output output pipe
+     * @param directory directory for the queue files, created if missing
+     * @param codec codec for the stored messages
+     * @param segmentSize size of each segment file in bytes
+     * @param syncEvery number of appends between forcing them to disk
+     * @throws IOException if the files cannot be opened
+     */
+    public PersistentQueue(IPipeFitting output, File directory, IMessageCodec codec, int segmentSize, int syncEvery) throws IOException {
+        super(output);
+        if(segmentSize <= RECORD_HEADER) throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.syncEvery = Math.max(1, syncEvery);
+        this.cursor = map(new File(directory, CURSOR_FILE), Long.BYTES);
+        recover();
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are appended to the queue files. If a
+     * message cannot be stored it is dropped and false is returned.</P>
+     *
+     * <P>The FLUSH message type tells the Queue to write all
+     * stored messages to the ouptut PipeFitting, then
+     * return to normal enqueing operation.</P>
+     *
+     * <P>The SORT message type tells the Queue to sort all
+     * <I>subsequent</I> incoming messages by priority. If there
+     * are unflushed messages in the queue, they will not be
+     * sorted unless a new message is sent before the next FLUSH.
+     * Sorting-by-priority behavior continues even after a FLUSH,
+     * and can be turned off by sending a FIFO message, which is
+     * the default behavior for enqueue/dequeue.</P>
+     */
+    public boolean write(IPipeMessage message) {
+        boolean success = true;
+
+        switch (message.getKind()) {
+            // Store normal messages
+            case Message.KIND_NORMAL:
+                success = this.store(message);
+                break;
+
+            // Flush the queue
+            case QueueControlMessage.KIND_FLUSH:
+                success = this.flush();
+                break;
+
+            // Put Queue into Priority Sort or FIFO mode
+            case QueueControlMessage.KIND_SORT:
+            case QueueControlMessage.KIND_FIFO:
+                synchronized (this) {
+                    mode = message.getType();
+                    modeKind = message.getKind();
+                }
+                break;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Write a batch of messages.</P>
+     *
+     * <P>Normal messages are appended and forced to disk together
+     * at the end of the batch.</P>
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        synchronized (this) {
+            for(IPipeMessage message : messages) {
+                if(message.getKind() == Message.KIND_NORMAL) {
+                    success = append(message) && success;
+                } else {
+                    success = write(message) && success;
+                }
+            }
+            sync();
+        }
+        return success;
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * <P>The queue is bounded only by the disk, so a message that
+     * is not stored is DROPPED, never FULL.</P>
+     *
+     * @param message the message to handle
+     * @return ACCEPTED if the message was handled, otherwise DROPPED
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>A PersistentQueue always has room.</P>
+     *
+     * @param message the message to write
+     * @return true
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        return true;
+    }
+
+    /**
+     * <P>Get the number of stored messages.</P>
+     *
+     * @return the number of messages waiting for a flush
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * <P>Force appended messages and the cursor to disk.</P>
+     */
+    public synchronized void sync() {
+        if(unsynced == 0) return;
+        MappedByteBuffer segment = segments.get(index(tail - 1));
+        if(segment != null) segment.force();
+        unsynced = 0;
+    }
+
+    /**
+     * <P>Close the queue.</P>
+     *
+     * <P>Forces everything to disk and releases the mapped files.
+     * The queue must not be written to afterwards.</P>
+     */
+    public synchronized void close() {
+        sync();
+        cursor.force();
+        segments.clear();
+    }
+
+    /**
+     * <P>Store a message.</P>
+     *
+     * @param message the IPipeMessage to enqueue.
+     * @return true if the message was stored
+     */
+    protected synchronized boolean store(IPipeMessage message) {
+        boolean stored = append(message);
+        if(stored && unsynced >= syncEvery) sync();
+        return stored;
+    }
+
+    /**
+     * <P>A PersistentQueue is never full, so demand listeners are not passed on.</P>
+     *
+     * @return false
+     */
+    protected boolean passesDemand() {
+        return false;
+    }
+
+    /**
+     * <P>Append a message to the current segment.</P>
+     *
+     * <P>A record never spans segments; if it does not fit in
+     * what is left of the current one, a new segment is started.
+     * The record's length is written last, and its checksum is
+     * verified on recovery, so a record cut short by a crash is
+     * never replayed.</P>
+     *
+     * @param message the IPipeMessage to enqueue.
+     * @return true if the message was stored
+     */
+    protected boolean append(IPipeMessage message) {
+        ByteBuffer record = encode(message);
+        if(record == null) return false;
+
+        int length = record.remaining();
+        if(offset(tail) + length > segmentSize) tail = (index(tail) + 1) * segmentSize;
+        try {
+            MappedByteBuffer segment = segment(index(tail), true);
+            int offset = offset(tail);
+            record.position(4);
+            segment.position(offset + 4);
+            segment.put(record);
+            segment.putInt(offset, length);
+        } catch (IOException exception) {
+            return false;
+        }
+
+        tail += length;
+        next++;
+        size = (int)(next - first);
+        unsynced++;
+        if(modeKind == QueueControlMessage.KIND_SORT) sortedThrough = next;
+        return true;
+    }
+
+    /**
+     * <P>Flush the queue.</P>
+     *
+     * <P>Decodes and writes out the messages stored before the flush
+     * started, a batch at a time, moving the cursor past each batch
+     * once the output has been called with it. Messages stored while
+     * it is running are held for the next flush.</P>
+     *
+     * @return Boolean true if all messages written successfully.
+     */
+    protected synchronized boolean flush() {
+        if(flushing) return true;
+        flushing = true;
+        try {
+            sync();
+            long end = next;
+            long sorted = Math.min(sortedThrough, end) - first;
+
+            boolean success = true;
+            if(sorted > 0) success = flushSorted((int)sorted);
+
+            ArrayList<IPipeMessage> batch = new ArrayList<>(FLUSH_BATCH);
+            long position = head;
+            while(first + batch.size() < end) {
+                position = locate(position);
+                batch.add(decode(position));
+                position += length(position);
+                if(batch.size() == FLUSH_BATCH || first + batch.size() == end) {
+                    success = output.writeBatch(batch) && success;
+                    advance(position, batch.size());
+                    batch = new ArrayList<>(FLUSH_BATCH);
+                }
+            }
+            return success;
+        } finally {
+            flushing = false;
+        }
+    }
+
+    /**
+     * <P>Flush the oldest records by priority.</P>
+     *
+     * <P>Only the record headers are read to order the records;
+     * each is decoded when its batch is written. The cursor is
+     * moved once all of them have been written. If the output throws,
+     * it is not moved, so the next flush writes all of them again,
+     * including the ones in batches the output already took.</P>
+     *
+     * @param count the number of records to flush
+     * @return Boolean true if all messages written successfully.
+     */
+    protected boolean flushSorted(int count) {
+        // Priority in the high bits, sequence in the low, so the sort is stable
+        long[] keys = new long[count];
+        long[] positions = new long[count];
+        long position = head;
+        for(int i = 0; i < count; i++) {
+            position = locate(position);
+            keys[i] = ((long)segments.get(index(position)).getInt(offset(position) + 8) << 32) | i;
+            positions[i] = position;
+            position += length(position);
+        }
+        Arrays.sort(keys);
+
+        boolean success = true;
+        ArrayList<IPipeMessage> batch = new ArrayList<>(Math.min(count, FLUSH_BATCH));
+        for(int i = 0; i < count; i++) {
+            batch.add(decode(positions[(int)keys[i]]));
+            if(batch.size() == FLUSH_BATCH || i == count - 1) {
+                success = output.writeBatch(batch) && success;
+                batch = new ArrayList<>(FLUSH_BATCH);
+            }
+        }
+
+        advance(position, count);
+        return success;
+    }
+
+    /**
+     * <P>Move the cursor past flushed records.</P>
+     *
+     * <P>Persists the new cursor and deletes the segments
+     * that are entirely before it.</P>
+     *
+     * @param position position after the last flushed record
+     * @param count the number of records flushed
+     */
+    protected void advance(long position, int count) {
+        head = position;
+        first += count;
+        size = (int)(next - first);
+        cursor.putLong(0, head);
+        cursor.force();
+
+        long current = index(head);
+        while(!segments.isEmpty() && segments.firstKey() < current) {
+            Map.Entry<Long, MappedByteBuffer> entry = segments.pollFirstEntry();
+            new File(directory, name(entry.getKey())).delete();
+        }
+    }
+
+    /**
+     * <P>Recover the queue from its files.</P>
+     *
+     * <P>Reads the cursor and counts the valid records after it. The
+     * ordering of the recovered records is restored from the mode
+     * each was stored in. Whatever follows the last valid record is
+     * cleared.</P>
+     *
+     * @throws IOException if the files cannot be read
+     */
+    protected void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if(files != null) {
+            for(File file : files) {
+                long index = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                segments.put(index, map(file, segmentSize));
+            }
+        }
+
+        head = cursor.getLong(0);
+        if(segments.isEmpty()) {
+            tail = head;
+            return;
+        }
+        if(index(head) < segments.firstKey()) head = segments.firstKey() * segmentSize;
+
+        long position = head;
+        while(true) {
+            position = locate(position);
+            MappedByteBuffer segment = segments.get(index(position));
+            if(segment == null || !valid(position)) break;
+            next++;
+            if((segment.getInt(offset(position) + 12) & SORTED) != 0) sortedThrough = next;
+            position += length(position);
+        }
+        tail = position;
+        size = (int)(next - first);
+        truncate();
+    }
+
+    /**
+     * <P>Clear everything after the tail.</P>
+     *
+     * <P>Zero-fills the rest of the tail's segment and deletes the
+     * segments after it.</P>
+     */
+    protected void truncate() {
+        MappedByteBuffer segment = segments.get(index(tail));
+        if(segment != null) {
+            for(int offset = offset(tail); offset < segmentSize; offset++) {
+                segment.put(offset, (byte)0);
+            }
+            segment.force();
+        }
+        while(!segments.isEmpty() && segments.lastKey() > index(tail)) {
+            Map.Entry<Long, MappedByteBuffer> entry = segments.pollLastEntry();
+            new File(directory, name(entry.getKey())).delete();
+        }
+    }
+
+    /**
+     * <P>Is there a complete record at a position?</P>
+     *
+     * @param position position of the record
+     * @return true if the record fits in its segment and its checksum matches
+     */
+    protected boolean valid(long position) {
+        int length = length(position);
+        int offset = offset(position);
+        if(length < RECORD_HEADER || offset + length > segmentSize) return false;
+        ByteBuffer record = segments.get(index(position)).duplicate();
+        record.limit(offset + length);
+        record.position(offset + CRC_START);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int)crc.getValue() == segments.get(index(position)).getInt(offset + 4);
+    }
+
+    /**
+     * <P>Find the record at or after a position.</P>
+     *
+     * <P>Skips the unused end of a segment, where a record
+     * did not fit and was appended to the next one.</P>
+     *
+     * @param position a record position or the end of a segment's records
+     * @return the record position
+     */
+    protected long locate(long position) {
+        if(offset(position) + RECORD_HEADER > segmentSize || length(position) == 0) {
+            long following = (index(position) + 1) * segmentSize;
+            if(segments.containsKey(index(following))) return following;
+        }
+        return position;
+    }
+
+    /**
+     * <P>Encode a message as a record.</P>
+     *
+     * @param message the message to encode
+     * @return the record, ready to read, or null if it can never fit in a segment
+     */
+    protected ByteBuffer encode(IPipeMessage message) {
+        while(true) {
+            encodeBuffer.clear();
+            encodeBuffer.position(RECORD_HEADER);
+            try {
+                codec.encode(message, encodeBuffer);
+            } catch (BufferOverflowException exception) {
+                if(encodeBuffer.capacity() >= segmentSize) return null;
+                encodeBuffer = ByteBuffer.allocate((int)Math.min(segmentSize, 2L * encodeBuffer.capacity()));
+                continue;
+            }
+            int length = encodeBuffer.position();
+            encodeBuffer.putInt(0, length);
+            encodeBuffer.putInt(8, message.getPriority());
+            encodeBuffer.putInt(12, modeKind == QueueControlMessage.KIND_SORT ? SORTED : 0);
+            CRC32 crc = new CRC32();
+            crc.update(encodeBuffer.array(), CRC_START, length - CRC_START);
+            encodeBuffer.putInt(4, (int)crc.getValue());
+            encodeBuffer.flip();
+            return encodeBuffer;
+        }
+    }
+
+    /**
+     * <P>Decode the record at a position.</P>
+     *
+     * @param position position of the record
+     * @return the decoded message
+     */
+    protected IPipeMessage decode(long position) {
+        ByteBuffer record = segments.get(index(position)).duplicate();
+        int offset = offset(position);
+        record.limit(offset + record.getInt(offset));
+        record.position(offset + RECORD_HEADER);
+        return codec.decode(record);
+    }
+
+    /**
+     * <P>Get the length of the record at a position.</P>
+     *
+     * <P>The length includes the record header, so it is never 0 for
+     * a record, even one whose payload is empty.</P>
+     *
+     * @param position position of the record
+     * @return the record length, or 0 if there is no record there
+     */
+    protected int length(long position) {
+        MappedByteBuffer segment = segments.get(index(position));
+        int offset = offset(position);
+        return segment == null || offset + RECORD_HEADER > segmentSize ? 0 : segment.getInt(offset);
+    }
+
+    /**
+     * <P>Get the mapped segment with an index.</P>
+     *
+     * @param index the segment index
+     * @param create true to create the segment if it does not exist
+     * @return the segment
+     * @throws IOException if the segment file cannot be mapped
+     */
+    protected MappedByteBuffer segment(long index, boolean create) throws IOException {
+        MappedByteBuffer segment = segments.get(index);
+        if(segment == null && create) {
+            sync();
+            segment = map(new File(directory, name(index)), segmentSize);
+            segments.put(index, segment);
+        }
+        return segment;
+    }
+
+    protected long index(long position) {
+        return position / segmentSize;
+    }
+
+    protected int offset(long position) {
+        return (int)(position % segmentSize);
+    }
+
+    protected String name(long index) {
+        return String.format("%020d", index) + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * <P>Map a file for reading and writing.</P>
+     *
+     * @param file the file, created and zero-filled if missing
+     * @param size the size to map
+     * @return the mapped buffer
+     * @throws IOException if the file cannot be mapped
+     */
+    protected static MappedByteBuffer map(File file, int size) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw"); FileChannel channel = access.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
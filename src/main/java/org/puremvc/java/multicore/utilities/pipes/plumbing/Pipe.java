@@ -9,6 +9,10 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * <P>Pipe.</P>
@@ -21,6 +25,9 @@ public class Pipe implements IPipeFitting {
 
     protected IPipeFitting output;
 
+    // Demand listeners, passed on to the output or told by the fitting itself
+    protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+
     public Pipe() {
 
     }
@@ -41,6 +48,11 @@ public class Pipe implements IPipeFitting {
         boolean success = false;
         if(this.output == null) {
             this.output = output;
+            if(passesDemand() && output != null) {
+                for(Runnable listener : demandListeners) {
+                    output.addDemandListener(listener);
+                }
+            }
             success = true;
         }
         return success;
@@ -61,6 +73,11 @@ public class Pipe implements IPipeFitting {
     public IPipeFitting disconnect() {
         IPipeFitting disconnectedFitting = this.output;
         this.output = null;
+        if(passesDemand() && disconnectedFitting != null) {
+            for(Runnable listener : demandListeners) {
+                disconnectedFitting.removeDemandListener(listener);
+            }
+        }
         return disconnectedFitting;
     }
 
@@ -73,4 +90,92 @@ public class Pipe implements IPipeFitting {
     public boolean write(IPipeMessage message) {
         return output.write(message);
     }
+
+    /**
+     * <P>Write the batch of messages to the connected output.</P>
+     *
+     * <P>A plain Pipe passes the whole batch to its output.
+     * For a subclass, <code>write</code> is called for each message
+     * unless the subclass overrides this method too.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean whether any connected downpipe outputs failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        if(getClass() != Pipe.class) return IPipeFitting.super.writeBatch(messages);
+        return output.writeBatch(messages);
+    }
+
+    /**
+     * <P>Offer the message to the connected output.</P>
+     *
+     * <P>A plain Pipe passes on the outcome from its output.
+     * For a subclass, the result of <code>write</code> is reported
+     * unless the subclass overrides this method too.</P>
+     *
+     * @param message the message to write
+     * @return the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(getClass() != Pipe.class) return IPipeFitting.super.offer(message);
+        return output.offer(message);
+    }
+
+    /**
+     * <P>Ask the connected output if there is room for the message.</P>
+     *
+     * @param message the message to write
+     * @return false if the output would turn the message away as FULL
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        IPipeFitting current = output;
+        return current == null || current.hasRoom(message);
+    }
+
+    /**
+     * <P>Add a demand listener.</P>
+     *
+     * <P>It is passed on to the connected output, and to any output
+     * connected later.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public void addDemandListener(Runnable listener) {
+        demandListeners.addIfAbsent(listener);
+        IPipeFitting current = output;
+        if(passesDemand() && current != null) current.addDemandListener(listener);
+    }
+
+    /**
+     * <P>Remove a demand listener.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public void removeDemandListener(Runnable listener) {
+        demandListeners.remove(listener);
+        IPipeFitting current = output;
+        if(passesDemand() && current != null) current.removeDemandListener(listener);
+    }
+
+    /**
+     * <P>Are demand listeners passed on to the output?</P>
+     *
+     * <P>Fittings that buffer messages return false, and tell
+     * their demand listeners themselves with <code>signalDemand</code>
+     * when they make room.</P>
+     *
+     * @return true
+     */
+    protected boolean passesDemand() {
+        return true;
+    }
+
+    /**
+     * <P>Tell the demand listeners there is room.</P>
+     */
+    protected void signalDemand() {
+        for(Runnable listener : demandListeners) {
+            listener.run();
+        }
+    }
 }
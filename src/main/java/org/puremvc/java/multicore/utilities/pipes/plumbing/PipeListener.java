@@ -9,7 +9,13 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.MessagePool;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 /**
@@ -18,6 +24,20 @@ import java.util.function.Consumer;
  * <P>Allows a class that does not implement <code>IPipeFitting</code> to
  * be the final recipient of the messages in a pipeline.</P>
  *
+ * <P>By default the listener is called on the thread that wrote
+ * the message. If an <code>Executor</code> is given, each message
+ * is delivered as a task on that executor instead, so a listener
+ * that blocks does not hold up the writer. Passing an executor
+ * that starts a virtual thread per task lets a blocking listener
+ * have many messages in flight without a platform thread each.
+ * Tasks are run one after another, so the listener still receives
+ * messages in the order they were written. The number of tasks
+ * waiting for their turn can be bounded; a write that would exceed
+ * it, or that the executor rejects, returns false.</P>
+ *
+ * <P>A listener can be set to release pooled messages back to
+ * their <code>MessagePool</code> once it has handled them.</P>
+ *
  * @see Junction
  */
 public class PipeListener implements IPipeFitting {
@@ -26,15 +46,56 @@ public class PipeListener implements IPipeFitting {
 
     private Consumer<IPipeMessage> listener;
 
+    private SerialExecutor executor;
+
+    private boolean releaseAfterDelivery;
+
     /**
      * <P>Constructor.</P>
      *
      * @param context context
      * @param listener listener
+     * @param executor executor to deliver messages on, or null to deliver on the writing thread
      */
-    public PipeListener(Object context, Consumer<IPipeMessage> listener) {
+    public PipeListener(Object context, Consumer<IPipeMessage> listener, Executor executor) {
+        this(context, listener, executor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param context context
+     * @param listener listener
+     * @param executor executor to deliver messages on, or null to deliver on the writing thread
+     * @param maxPending maximum number of deliveries waiting for their turn on the executor
+     */
+    public PipeListener(Object context, Consumer<IPipeMessage> listener, Executor executor, int maxPending) {
+        if(maxPending <= 0) throw new IllegalArgumentException("Max pending must be positive: " + maxPending);
         this.context = context;
         this.listener = listener;
+        if(executor != null) this.executor = new SerialExecutor(executor, maxPending);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param context context
+     * @param listener listener
+     */
+    public PipeListener(Object context, Consumer<IPipeMessage> listener) {
+        this(context, listener, null);
+    }
+
+    /**
+     * <P>Release pooled messages after the listener has handled them.</P>
+     *
+     * <P>Only enable this if the listener is the last user of the
+     * messages it receives and does not keep references to them.</P>
+     *
+     * @param releaseAfterDelivery true to release each pooled message after delivery
+     */
+    public void setReleaseAfterDelivery(boolean releaseAfterDelivery) {
+        this.releaseAfterDelivery = releaseAfterDelivery;
     }
 
     /**
@@ -54,11 +115,134 @@ public class PipeListener implements IPipeFitting {
     /**
      * <P>Write the message to the listener</P>
      *
+     * <P>With an executor, the message is handed to it and
+     * true means it was accepted for delivery.</P>
+     *
      * @param message message to send
      * @return boolean whether message was written
      */
     public boolean write(IPipeMessage message) {
-        listener.accept(message);
+        if(executor == null) {
+            deliver(message);
+            return true;
+        }
+        try {
+            executor.execute(() -> deliver(message));
+        } catch (RejectedExecutionException exception) {
+            return false;
+        }
         return true;
     }
+
+    /**
+     * <P>Write the batch of messages to the listener</P>
+     *
+     * <P>With an executor, the whole batch is delivered
+     * in a single task.</P>
+     *
+     * @param messages messages to send
+     * @return boolean whether the messages were written
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        if(executor == null) {
+            messages.forEach(this::deliver);
+            return true;
+        }
+        List<IPipeMessage> batch = new ArrayList<>(messages);
+        try {
+            executor.execute(() -> batch.forEach(this::deliver));
+        } catch (RejectedExecutionException exception) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * <P>Get the number of deliveries waiting for their turn on the executor.</P>
+     *
+     * @return the pending count, 0 without an executor
+     */
+    public int getPendingCount() {
+        return executor == null ? 0 : executor.getPendingCount();
+    }
+
+    /**
+     * <P>Call the listener, then release the message if set to.</P>
+     *
+     * @param message message to deliver
+     */
+    private void deliver(IPipeMessage message) {
+        listener.accept(message);
+        if(releaseAfterDelivery) MessagePool.releaseMessage(message);
+    }
+
+    /**
+     * <P>Runs tasks one at a time, in submission order,
+     * on an underlying executor.</P>
+     *
+     * <P>If the underlying executor rejects the next task when the
+     * previous one finishes, it is kept at the head of the queue and
+     * scheduled again by the next <code>execute</code>.</P>
+     */
+    protected static class SerialExecutor implements Executor {
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        private final Executor executor;
+
+        private final int maxPending;
+
+        private Runnable active;
+
+        /**
+         * <P>Constructor.</P>
+         *
+         * @param executor the executor to run tasks on
+         * @param maxPending maximum number of tasks waiting for their turn
+         */
+        protected SerialExecutor(Executor executor, int maxPending) {
+            this.executor = executor;
+            this.maxPending = maxPending;
+        }
+
+        public synchronized void execute(Runnable task) {
+            if(active == null && !tasks.isEmpty()) scheduleNext();
+            if(tasks.size() >= maxPending) throw new RejectedExecutionException("Too many pending tasks: " + tasks.size());
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    try {
+                        scheduleNext();
+                    } catch (RejectedExecutionException exception) {
+                        // Kept queued for the next execute
+                    }
+                }
+            });
+            if(active == null) {
+                try {
+                    scheduleNext();
+                } catch (RejectedExecutionException exception) {
+                    tasks.pollLast();
+                    throw exception;
+                }
+            }
+        }
+
+        protected synchronized int getPendingCount() {
+            return tasks.size();
+        }
+
+        protected synchronized void scheduleNext() {
+            if((active = tasks.poll()) != null) {
+                try {
+                    executor.execute(active);
+                } catch (RejectedExecutionException exception) {
+                    tasks.addFirst(active);
+                    active = null;
+                    throw exception;
+                }
+            }
+        }
+    }
 }
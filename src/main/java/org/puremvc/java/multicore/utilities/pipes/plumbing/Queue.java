@@ -9,11 +9,21 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
 import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Vector;
+import java.util.List;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 /**
  * <P>Pipe Queue.</P>
@@ -30,12 +40,113 @@ import java.util.Vector;
  * message. Multiple queues in one pipeline are of dubious
  * use, and so having to name them would make their operation
  * more complex than need be.</P>
+ *
+ * <P>A Queue can be given a capacity. What happens to a normal
+ * message that arrives when it holds that many is decided by the
+ * overflow policy:</P>
+ *
+ * <UL>
+ * <LI><code>OVERFLOW_REJECT</code>, the default, rejects the message;
+ * <code>write</code> returns false and <code>offer</code> returns
+ * <code>WriteOutcome.FULL</code>, until a FLUSH makes room and the
+ * demand listeners are told.</LI>
+ * <LI><code>OVERFLOW_DROP_OLDEST</code> drops the oldest stored
+ * message to make room.</LI>
+ * <LI><code>OVERFLOW_DROP_LOWEST</code> drops the stored message
+ * with the lowest priority, the newest of them if there are several,
+ * unless the new message's priority is as low, in which case the new
+ * message is dropped. In SORT mode this costs O(log n).</LI>
+ * <LI><code>OVERFLOW_BLOCK</code> makes the writer wait, up to the
+ * block timeout, for a flush on another thread to make room.</LI>
+ * <LI><code>OVERFLOW_SPILL</code> writes the message to a spill
+ * fitting, usually a <code>PersistentQueue</code>, which is flushed
+ * after this queue.</LI>
+ * </UL>
+ *
+ * <P>Each policy keeps a count of the messages it has handled.</P>
+ *
+ * <P>A Queue can also flush itself, when it holds a number of
+ * messages, an estimated number of bytes, or when a time has passed
+ * since the first message was stored after the last flush, whichever
+ * comes first. Timed flushes are triggered by a scheduler thread
+ * shared by all queues, and run on the flush executor, so a slow
+ * output does not hold up the timers of other fittings.</P>
  */
 public class Queue extends Pipe {
 
+    public static final String OVERFLOW_REJECT = "reject";
+
+    public static final String OVERFLOW_DROP_OLDEST = "dropOldest";
+
+    public static final String OVERFLOW_DROP_LOWEST = "dropLowest";
+
+    public static final String OVERFLOW_BLOCK = "block";
+
+    public static final String OVERFLOW_SPILL = "spill";
+
     protected String mode = QueueControlMessage.SORT;
 
-    protected Vector<IPipeMessage> messages = new Vector<>();
+    // Kind of the mode type, checked on each store
+    protected int modeKind = QueueControlMessage.KIND_SORT;
+
+    // Messages stored in FIFO mode, in order of arrival
+    protected ArrayDeque<IPipeMessage> messages = new ArrayDeque<>();
+
+    // Messages stored in SORT mode, ordered by priority, then arrival
+    protected TreeSet<Entry> sorted = new TreeSet<>(this::sortEntries);
+
+    // The same entries in order of arrival, including ones since dropped
+    protected ArrayDeque<Entry> arrivals = new ArrayDeque<>();
+
+    // Number of stored messages, readable without the lock
+    protected volatile int size = 0;
+
+    // Number of dropped entries still in the arrivals
+    protected int droppedEntries = 0;
+
+    // Arrival counter, keeps messages of equal priority in FIFO order
+    protected long sequence = 0;
+
+    // Maximum number of stored messages
+    protected int capacity = Integer.MAX_VALUE;
+
+    protected String overflowPolicy = OVERFLOW_REJECT;
+
+    protected long blockTimeout = 0;
+
+    protected IPipeFitting spill;
+
+    // Overflow counters
+    protected long rejectedCount = 0;
+
+    protected long droppedOldestCount = 0;
+
+    protected long droppedLowestCount = 0;
+
+    protected long blockedCount = 0;
+
+    protected long timedOutCount = 0;
+
+    protected long spilledCount = 0;
+
+    // Auto-flush triggers, 0 when not in use
+    protected int flushMessages = 0;
+
+    protected long flushBytes = 0;
+
+    protected long flushDelay = 0;
+
+    protected ToLongFunction<IPipeMessage> sizer = Message::estimateSize;
+
+    // Estimated bytes stored, counted while flushBytes is in use
+    protected long bytes = 0;
+
+    protected ScheduledFuture<?> pendingFlush;
+
+    // Runs the flushes triggered by the time trigger
+    protected Executor flushExecutor = ForkJoinPool.commonPool();
+
+    protected volatile boolean flushDue = false;
 
     /**
      * <P>Constructor.</P>
@@ -53,6 +164,17 @@ public class Queue extends Pipe {
         super(output);
     }
 
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param output output pipe
+     * @param capacity maximum number of stored messages
+     */
+    public Queue(IPipeFitting output, int capacity) {
+        super(output);
+        setCapacity(capacity);
+    }
+
     /**
      * <P>Handle the incoming message.</P>
      *
@@ -69,18 +191,22 @@ public class Queue extends Pipe {
      * Sorting-by-priority behavior continues even after a FLUSH,
      * and can be turned off by sending a FIFO message, which is
      * the default behavior for enqueue/dequeue.</P>
+     *
+     * <P>Returns false if a normal message is rejected because
+     * the queue is full.</P>
      */
     public boolean write(IPipeMessage message) {
         boolean success = true;
 
-        switch (message.getType()) {
+        switch (message.getKind()) {
             // Store normal messages
-            case Message.NORMAL:
-                this.store(message);
+            case Message.KIND_NORMAL:
+                success = this.store(message).isAccepted();
+                autoFlush();
                 break;
 
             // Flush the queue
-            case QueueControlMessage.FLUSH:
+            case QueueControlMessage.KIND_FLUSH:
                 success = this.flush();
                 break;
 
@@ -88,14 +214,283 @@ public class Queue extends Pipe {
             // Subsequent messages written to the queue
             // will be affected. Sorted messages cannot
             // be put back into FIFO order!
-            case QueueControlMessage.SORT:
-            case QueueControlMessage.FIFO:
+            case QueueControlMessage.KIND_SORT:
+            case QueueControlMessage.KIND_FIFO:
                 mode = message.getType();
+                modeKind = message.getKind();
+                if(spill != null) spill.write(message);
                 break;
         }
         return success;
     }
 
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * <P>A normal message that does not fit is reported as FULL,
+     * or as DROPPED if the overflow policy dropped it.</P>
+     *
+     * @param message the message to handle
+     * @return the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() == Message.KIND_NORMAL) {
+            WriteOutcome outcome = store(message);
+            autoFlush();
+            return outcome;
+        }
+        return WriteOutcome.of(write(message));
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages.</P>
+     *
+     * <P>Each message is handled as by <code>write</code>, in order.
+     * Runs of normal messages are stored under a single lock, which
+     * is released to flush wherever an auto-flush trigger is reached,
+     * just as when the messages are written one at a time.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean false if a message was rejected or a flush in the batch failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        int size = messages.size();
+        int index = 0;
+        while(index < size) {
+            int end = index;
+            while(end < size && messages.get(end).getKind() == Message.KIND_NORMAL) end++;
+            if(end > index) {
+                Iterator<IPipeMessage> run = messages.subList(index, end).iterator();
+                while(run.hasNext()) {
+                    if(!storeAll(run)) success = false;
+                    autoFlush();
+                }
+                index = end;
+            } else if(!write(messages.get(index++))) {
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * <P>Set the capacity.</P>
+     *
+     * <P>Messages already stored are kept even if there are more
+     * than the new capacity.</P>
+     *
+     * @param capacity maximum number of stored messages
+     */
+    public synchronized void setCapacity(int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * <P>Get the capacity.</P>
+     *
+     * @return maximum number of stored messages
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * <P>Set the auto-flush triggers.</P>
+     *
+     * <P>The queue flushes itself as soon as any trigger in use is
+     * reached. The message and byte triggers are checked as messages
+     * are stored, and after each run of normal messages in a batch;
+     * the flush runs on the writing thread. The time trigger runs the
+     * flush on the flush executor.</P>
+     *
+     * @param maxMessages flush when this many messages are stored, 0 for no limit
+     * @param maxBytes flush when the estimated size of the stored messages reaches this, 0 for no limit
+     * @param maxDelay flush this long after the first message is stored, 0 for no limit
+     * @param unit the unit of the delay
+     */
+    public synchronized void setAutoFlush(int maxMessages, long maxBytes, long maxDelay, TimeUnit unit) {
+        this.flushMessages = Math.max(0, maxMessages);
+        this.flushBytes = Math.max(0, maxBytes);
+        this.flushDelay = Math.max(0, unit.toNanos(maxDelay));
+        this.bytes = 0;
+    }
+
+    /**
+     * <P>Set the executor that runs timed flushes.</P>
+     *
+     * <P>The default is the common <code>ForkJoinPool</code>. If the
+     * executor rejects a flush, it runs on the next write instead.</P>
+     *
+     * @param flushExecutor the executor
+     */
+    public synchronized void setFlushExecutor(Executor flushExecutor) {
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * <P>Set the function estimating message sizes for the byte trigger.</P>
+     *
+     * <P>The default is <code>Message.estimateSize</code>.</P>
+     *
+     * @param sizer function returning the estimated size of a message in bytes
+     */
+    public synchronized void setMessageSizer(ToLongFunction<IPipeMessage> sizer) {
+        this.sizer = sizer;
+    }
+
+    /**
+     * <P>Set the overflow policy.</P>
+     *
+     * @param overflowPolicy one of the <code>OVERFLOW_</code> constants
+     */
+    public synchronized void setOverflowPolicy(String overflowPolicy) {
+        switch (overflowPolicy) {
+            case OVERFLOW_REJECT:
+            case OVERFLOW_DROP_OLDEST:
+            case OVERFLOW_DROP_LOWEST:
+            case OVERFLOW_BLOCK:
+            case OVERFLOW_SPILL:
+                this.overflowPolicy = overflowPolicy;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown overflow policy: " + overflowPolicy);
+        }
+    }
+
+    /**
+     * <P>Get the overflow policy.</P>
+     *
+     * @return one of the <code>OVERFLOW_</code> constants
+     */
+    public synchronized String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * <P>Set how long <code>OVERFLOW_BLOCK</code> waits for room.</P>
+     *
+     * <P>Room is only made by a flush on another thread; a writer
+     * that is also the one flushing always waits the full timeout.</P>
+     *
+     * @param timeout the longest time to wait
+     * @param unit the unit of the timeout
+     */
+    public synchronized void setBlockTimeout(long timeout, TimeUnit unit) {
+        this.blockTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * <P>Set the fitting <code>OVERFLOW_SPILL</code> writes to.</P>
+     *
+     * <P>The spill fitting, usually a <code>PersistentQueue</code>,
+     * must be connected to the same output as this queue. It is sent
+     * the messages that overflow, the SORT and FIFO control messages,
+     * and a FLUSH after each flush of this queue, so spilled messages
+     * follow the ones held in memory.</P>
+     *
+     * @param spill the fitting to spill to
+     */
+    public synchronized void setSpill(IPipeFitting spill) {
+        this.spill = spill;
+    }
+
+    /**
+     * <P>Get the number of messages rejected by <code>OVERFLOW_REJECT</code>,
+     * or by <code>OVERFLOW_SPILL</code> when the spill fitting failed.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * <P>Get the number of messages dropped by <code>OVERFLOW_DROP_OLDEST</code>.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getDroppedOldestCount() {
+        return droppedOldestCount;
+    }
+
+    /**
+     * <P>Get the number of messages dropped by <code>OVERFLOW_DROP_LOWEST</code>.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getDroppedLowestCount() {
+        return droppedLowestCount;
+    }
+
+    /**
+     * <P>Get the number of writers that waited under <code>OVERFLOW_BLOCK</code>.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * <P>Get the number of writers whose wait under <code>OVERFLOW_BLOCK</code> timed out.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getTimedOutCount() {
+        return timedOutCount;
+    }
+
+    /**
+     * <P>Get the number of messages written to the spill fitting.</P>
+     *
+     * @return the count
+     */
+    public synchronized long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * <P>Get the number of stored messages.</P>
+     *
+     * @return the number of messages waiting for a flush
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * <P>Control messages and normal messages the overflow policy
+     * makes room for, by dropping, waiting or spilling, always have
+     * room.</P>
+     *
+     * @param message the message to write
+     * @return false if the message would be turned away as FULL
+     */
+    public synchronized boolean hasRoom(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL || sorted.size() + messages.size() < capacity) return true;
+        switch (overflowPolicy) {
+            case OVERFLOW_REJECT:
+                return false;
+            case OVERFLOW_SPILL:
+                return spill != null && spill.hasRoom(message);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * <P>A Queue tells its demand listeners itself, when a flush makes room.</P>
+     *
+     * @return false
+     */
+    protected boolean passesDemand() {
+        return false;
+    }
+
     /**
      * <P>Sort the Messages by priority.</P>
      *
@@ -111,31 +506,325 @@ public class Queue extends Pipe {
         return num;
     }
 
+    /**
+     * <P>Sort the tree entries by priority, then by order of arrival.</P>
+     *
+     * @param entryA entry A
+     * @param entryB entry B
+     *
+     * @return int for priority indication, -1 less than, 0 equal, 1 greater than
+     */
+    protected int sortEntries(Entry entryA, Entry entryB) {
+        int num = sortMessagesByPriority(entryA.message, entryB.message);
+        if(num == 0) num = Long.compare(entryA.sequence, entryB.sequence);
+        return num;
+    }
+
     /**
      * <P>Store a message.</P>
      *
+     * <P>In SORT mode the message is added to a sorted tree, so
+     * storing costs O(log n) rather than a sort of the whole buffer.
+     * Any messages stored in FIFO mode since the last SORT mode store
+     * are moved into the tree first, which gives the same order as a
+     * stable sort of everything buffered.</P>
+     *
+     * <P>If the queue is full, the overflow policy is applied first.</P>
+     *
      * @param message the IPipeMessage to enqueue.
+     * @return the outcome of storing the message
+     */
+    protected synchronized WriteOutcome store(IPipeMessage message) {
+        if(modeKind == QueueControlMessage.KIND_SORT) sortFifoMessages();
+
+        if(sorted.size() + messages.size() >= capacity) {
+            switch (overflowPolicy) {
+                case OVERFLOW_DROP_OLDEST:
+                    IPipeMessage oldest = dropOldest();
+                    if(flushBytes > 0) bytes -= sizer.applyAsLong(oldest);
+                    droppedOldestCount++;
+                    break;
+
+                case OVERFLOW_DROP_LOWEST:
+                    droppedLowestCount++;
+                    IPipeMessage lowest = dropLowest(message);
+                    if(lowest == message) return WriteOutcome.DROPPED;
+                    if(flushBytes > 0) bytes -= sizer.applyAsLong(lowest);
+                    break;
+
+                case OVERFLOW_BLOCK:
+                    blockedCount++;
+                    if(!awaitRoom()) {
+                        timedOutCount++;
+                        return WriteOutcome.FULL;
+                    }
+                    break;
+
+                case OVERFLOW_SPILL:
+                    if(spill != null && spill.write(message)) {
+                        spilledCount++;
+                        return WriteOutcome.ACCEPTED;
+                    }
+                    rejectedCount++;
+                    return WriteOutcome.FULL;
+
+                default:
+                    rejectedCount++;
+                    return WriteOutcome.FULL;
+            }
+        }
+
+        if(modeKind == QueueControlMessage.KIND_SORT) {
+            sortFifoMessages();
+            addSorted(message);
+        } else {
+            messages.add(message);
+        }
+        size = sorted.size() + messages.size();
+        checkAutoFlush(message);
+        return WriteOutcome.ACCEPTED;
+    }
+
+    /**
+     * <P>Check the auto-flush triggers after storing a message.</P>
+     *
+     * <P>Marks a flush as due if the message or byte trigger is
+     * reached, otherwise starts the timer if this is the first
+     * message since the last flush.</P>
+     *
+     * @param message the stored message
+     */
+    protected void checkAutoFlush(IPipeMessage message) {
+        if(flushBytes > 0) bytes += sizer.applyAsLong(message);
+        if((flushMessages > 0 && sorted.size() + messages.size() >= flushMessages) || (flushBytes > 0 && bytes >= flushBytes)) {
+            flushDue = true;
+        } else if(flushDelay > 0 && pendingFlush == null) {
+            pendingFlush = SharedScheduler.get().schedule(this::timedFlush, flushDelay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * <P>Hand a flush whose time has come to the flush executor.</P>
+     *
+     * <P>Runs on the shared scheduler thread, so it must not flush
+     * there itself.</P>
+     */
+    protected void timedFlush() {
+        Executor executor;
+        synchronized (this) {
+            executor = flushExecutor;
+        }
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException exception) {
+            flushDue = true;
+        }
+    }
+
+    /**
+     * <P>Flush the queue if an auto-flush trigger was reached.</P>
+     */
+    protected void autoFlush() {
+        if(flushDue) flush();
+    }
+
+    /**
+     * <P>Move the messages stored in FIFO mode into the sorted tree.</P>
+     */
+    protected void sortFifoMessages() {
+        while(!messages.isEmpty()) {
+            addSorted(messages.poll());
+        }
+    }
+
+    /**
+     * <P>Add a message to the sorted tree.</P>
+     *
+     * @param message the IPipeMessage to add
+     */
+    protected void addSorted(IPipeMessage message) {
+        Entry entry = new Entry(message, sequence++);
+        sorted.add(entry);
+        arrivals.add(entry);
+    }
+
+    /**
+     * <P>Drop the oldest stored message.</P>
+     *
+     * <P>Messages in the sorted tree are always older than the
+     * ones stored in FIFO mode after them.</P>
+     *
+     * @return the dropped message
+     */
+    protected IPipeMessage dropOldest() {
+        Entry entry;
+        while((entry = arrivals.poll()) != null) {
+            if(!entry.dropped) {
+                sorted.remove(entry);
+                return entry.message;
+            }
+            droppedEntries--;
+        }
+        return messages.poll();
+    }
+
+    /**
+     * <P>Drop the stored message with the lowest priority.</P>
+     *
+     * <P>The lowest priority sorted message is the last in the tree.
+     * Messages stored in FIFO mode since the last SORT mode store
+     * have to be searched, which only happens in FIFO mode. If the
+     * new message's priority is as low as any stored one, it is
+     * the one dropped.</P>
+     *
+     * <P>A message dropped from the tree is only marked in the
+     * arrivals. Once as many are marked as there are messages in
+     * the tree, the arrivals are compacted, so they stay within
+     * twice the capacity at an amortized O(1) cost per drop.</P>
+     *
+     * @param message the new message
+     * @return the dropped message, which may be the new one
      */
-    protected void store(IPipeMessage message) {
-        messages.add(message);
-        if(mode == QueueControlMessage.SORT) {
-            messages.sort(this::sortMessagesByPriority);
+    protected IPipeMessage dropLowest(IPipeMessage message) {
+        IPipeMessage lowest = sorted.isEmpty() ? null : sorted.last().message;
+        IPipeMessage lowestFifo = null;
+        Iterator<IPipeMessage> iterator = messages.descendingIterator();
+        while(iterator.hasNext()) {
+            IPipeMessage candidate = iterator.next();
+            if(lowestFifo == null || sortMessagesByPriority(candidate, lowestFifo) > 0) lowestFifo = candidate;
         }
+        if(lowestFifo != null && (lowest == null || sortMessagesByPriority(lowestFifo, lowest) >= 0)) lowest = lowestFifo;
+
+        if(lowest == null || sortMessagesByPriority(message, lowest) >= 0) return message;
+
+        if(lowest == lowestFifo) {
+            iterator = messages.descendingIterator();
+            while(iterator.next() != lowest);
+            iterator.remove();
+        } else {
+            sorted.pollLast().dropped = true;
+            if(++droppedEntries >= sorted.size()) {
+                arrivals.removeIf(entry -> entry.dropped);
+                droppedEntries = 0;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * <P>Wait for a flush to make room.</P>
+     *
+     * @return true if there is room, false if the wait timed out or was interrupted
+     */
+    protected boolean awaitRoom() {
+        long deadline = System.nanoTime() + blockTimeout;
+        try {
+            while(sorted.size() + messages.size() >= capacity) {
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * <P>Store messages from a run until it ends or an auto-flush is due.</P>
+     *
+     * <P>At least one message is stored, and the rest are left in
+     * the iterator for after the flush.</P>
+     *
+     * @param run the IPipeMessages to enqueue.
+     * @return true if there was room to store all the messages taken
+     */
+    protected synchronized boolean storeAll(Iterator<IPipeMessage> run) {
+        boolean success = true;
+        do {
+            if(!store(run.next()).isAccepted()) success = false;
+        } while(run.hasNext() && !flushDue);
+        return success;
     }
 
     /**
      * <P>Flush the queue.</P>
      *
+     * <P>Sorted messages are written first, in priority order,
+     * followed by any messages stored in FIFO mode since. The
+     * messages are written to the output as a single batch.</P>
+     *
+     * <P>The buffers are swapped for empty ones in a single step and
+     * then drained outside the lock, so messages stored while the
+     * flush is writing (even by a downstream fitting) are held for
+     * the next flush. The demand listeners are told once the
+     * buffers have been swapped.</P>
+     *
+     * <P>If there is a spill fitting, it is flushed afterwards.</P>
+     *
      * <P>NOTE: This empties the queue.</P>
      * @return Boolean true if all messages written successfully.
      */
     protected boolean flush() {
-        final boolean[] success = {true};
-        ArrayList<IPipeMessage> temp = new ArrayList<>(messages);
-        temp.forEach(msg -> {
-            if(!output.write(msg)) success[0] = false;
-            messages.remove(0);
-        });
-        return success[0];
+        TreeSet<Entry> sortedBuffer;
+        ArrayDeque<IPipeMessage> fifoBuffer;
+        IPipeFitting spillBuffer;
+        synchronized (this) {
+            sortedBuffer = sorted;
+            fifoBuffer = messages;
+            spillBuffer = spill;
+            sorted = new TreeSet<>(this::sortEntries);
+            arrivals = new ArrayDeque<>();
+            droppedEntries = 0;
+            messages = new ArrayDeque<>();
+            size = 0;
+            bytes = 0;
+            flushDue = false;
+            if(pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            notifyAll();
+        }
+
+        boolean success = true;
+        if(!sortedBuffer.isEmpty() || !fifoBuffer.isEmpty()) {
+            signalDemand();
+            List<IPipeMessage> batch = new ArrayList<>(sortedBuffer.size() + fifoBuffer.size());
+            for(Entry entry : sortedBuffer) {
+                batch.add(entry.message);
+            }
+            batch.addAll(fifoBuffer);
+            success = output.writeBatch(batch);
+        }
+        if(spillBuffer != null) {
+            success = spillBuffer.write(new QueueControlMessage(QueueControlMessage.FLUSH)) && success;
+        }
+        return success;
+    }
+
+    /**
+     * <P>A message stored in SORT mode, with its arrival sequence.</P>
+     */
+    protected static class Entry {
+
+        protected final IPipeMessage message;
+
+        protected final long sequence;
+
+        // Set when dropped from the tree but still in the arrivals
+        protected boolean dropped;
+
+        /**
+         * <P>Constructor.</P>
+         *
+         * @param message stored message
+         * @param sequence arrival sequence
+         */
+        protected Entry(IPipeMessage message, long sequence) {
+            this.message = message;
+            this.sequence = sequence;
+        }
     }
 }
@@ -0,0 +1,327 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Headers;
+import org.puremvc.java.multicore.utilities.pipes.messages.ImmutableMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * <P>Router.</P>
+ *
+ * <P>Writes each normal message to one output, chosen by a key taken
+ * from the message and looked up in a hash index of routes, so the
+ * cost of routing does not grow with the number of routes. Messages
+ * whose key has no route go to the default route, if there is one.</P>
+ *
+ * <P>Routes can be added and removed at any time. The index is a
+ * concurrent map, so writing never takes a lock, and a write sees
+ * each route either before or after a change.</P>
+ *
+ * <P>Other messages, such as queue control messages, are written to
+ * every output: each distinct route and the default route.</P>
+ */
+public class Router implements IPipeFitting {
+
+    /**
+     * <P>Key extractor routing by message type.</P>
+     */
+    public static final Function<IPipeMessage, Object> TYPE = IPipeMessage::getType;
+
+    /**
+     * <P>Key extractor routing by message header.</P>
+     */
+    public static final Function<IPipeMessage, Object> HEADER = IPipeMessage::getHeader;
+
+    protected final Function<IPipeMessage, Object> keyExtractor;
+
+    protected final ConcurrentHashMap<Object, IPipeFitting> routes = new ConcurrentHashMap<>();
+
+    protected volatile IPipeFitting defaultRoute;
+
+    // Demand listeners, passed on to every output including ones routed to later
+    protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param keyExtractor function returning the route key of a message
+     */
+    public Router(Function<IPipeMessage, Object> keyExtractor) {
+        this(keyExtractor, null);
+    }
+
+    /**
+     * <P>Constructor.</P>
+     *
+     * @param keyExtractor function returning the route key of a message
+     * @param defaultRoute output for messages with no route, or null
+     */
+    public Router(Function<IPipeMessage, Object> keyExtractor, IPipeFitting defaultRoute) {
+        this.keyExtractor = keyExtractor;
+        this.defaultRoute = defaultRoute;
+    }
+
+    /**
+     * <P>Key extractor routing by a typed header of an <code>ImmutableMessage</code>.</P>
+     *
+     * <P>Other messages have no key, and go to the default route.</P>
+     *
+     * @param key the header key
+     * @return the key extractor
+     */
+    public static Function<IPipeMessage, Object> byHeader(Headers.Key<?> key) {
+        return message -> message instanceof ImmutableMessage ? ((ImmutableMessage)message).getHeader(key) : null;
+    }
+
+    /**
+     * <P>Add a route.</P>
+     *
+     * @param key the route key
+     * @param output the output for messages with the key
+     * @return the output previously routed to for the key, or null
+     */
+    public synchronized IPipeFitting addRoute(Object key, IPipeFitting output) {
+        addDemandListeners(output);
+        IPipeFitting previous = routes.put(key, output);
+        removeDemandListeners(previous);
+        return previous;
+    }
+
+    /**
+     * <P>Remove a route.</P>
+     *
+     * @param key the route key
+     * @return the output that was routed to for the key, or null
+     */
+    public synchronized IPipeFitting removeRoute(Object key) {
+        IPipeFitting removed = routes.remove(key);
+        removeDemandListeners(removed);
+        return removed;
+    }
+
+    /**
+     * <P>Get the output routed to for a key.</P>
+     *
+     * @param key the route key
+     * @return the output, or null if there is no route
+     */
+    public IPipeFitting getRoute(Object key) {
+        return routes.get(key);
+    }
+
+    /**
+     * <P>Connect the default route.</P>
+     *
+     * @param output the output for messages with no route
+     * @return true if no default route was already connected.
+     */
+    public synchronized boolean connect(IPipeFitting output) {
+        boolean success = false;
+        if(defaultRoute == null) {
+            addDemandListeners(output);
+            defaultRoute = output;
+            success = true;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Disconnect the default route.</P>
+     *
+     * @return IPipeFitting the now disconnected default route
+     */
+    public synchronized IPipeFitting disconnect() {
+        IPipeFitting disconnectedFitting = defaultRoute;
+        defaultRoute = null;
+        removeDemandListeners(disconnectedFitting);
+        return disconnectedFitting;
+    }
+
+    /**
+     * <P>Write the message to its route.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if there was no route, or the output failed
+     */
+    public boolean write(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return broadcast(message);
+        IPipeFitting output = route(message);
+        return output != null && output.write(message);
+    }
+
+    /**
+     * <P>Offer the message to its route.</P>
+     *
+     * @param message the message to write
+     * @return the outcome from the route, or DROPPED if there was none
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return WriteOutcome.of(broadcast(message));
+        IPipeFitting output = route(message);
+        return output == null ? WriteOutcome.DROPPED : output.offer(message);
+    }
+
+    /**
+     * <P>Write the batch of messages to their routes.</P>
+     *
+     * <P>Each output is given the messages routed to it as one batch,
+     * in order. A message written to every output first writes out
+     * the batches built before it.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean false if a message had no route, or an output failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        Map<IPipeFitting, List<IPipeMessage>> batches = new LinkedHashMap<>();
+        for(IPipeMessage message : messages) {
+            if(message.getKind() != Message.KIND_NORMAL) {
+                success = writeBatches(batches) && success;
+                batches.clear();
+                success = broadcast(message) && success;
+                continue;
+            }
+            IPipeFitting output = route(message);
+            if(output == null) {
+                success = false;
+            } else {
+                batches.computeIfAbsent(output, fitting -> new ArrayList<>()).add(message);
+            }
+        }
+        return writeBatches(batches) && success;
+    }
+
+    /**
+     * <P>Is there room for the message?</P>
+     *
+     * @param message the message to write
+     * @return false if the route of a normal message has no room
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return true;
+        IPipeFitting output = route(message);
+        return output == null || output.hasRoom(message);
+    }
+
+    /**
+     * <P>Pass a demand listener on to every output, and to any
+     * output routed to later.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public synchronized void addDemandListener(Runnable listener) {
+        demandListeners.addIfAbsent(listener);
+        for(IPipeFitting output : outputs()) {
+            output.addDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Pass the removal of a demand listener on to every output.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeDemandListener(Runnable listener) {
+        demandListeners.remove(listener);
+        for(IPipeFitting output : outputs()) {
+            output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Look up the output for a message.</P>
+     *
+     * @param message the message to route
+     * @return the output, or the default route if the key has no route
+     */
+    protected IPipeFitting route(IPipeMessage message) {
+        Object key = keyExtractor.apply(message);
+        IPipeFitting output = key == null ? null : routes.get(key);
+        return output != null ? output : defaultRoute;
+    }
+
+    /**
+     * <P>Write a message to every output.</P>
+     *
+     * @param message the message to write
+     * @return Boolean false if any output failed
+     */
+    protected boolean broadcast(IPipeMessage message) {
+        boolean success = true;
+        for(IPipeFitting output : outputs()) {
+            if(!output.write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Write batches to their outputs.</P>
+     *
+     * @param batches the batches by output
+     * @return Boolean false if any output failed
+     */
+    protected boolean writeBatches(Map<IPipeFitting, List<IPipeMessage>> batches) {
+        boolean success = true;
+        for(Map.Entry<IPipeFitting, List<IPipeMessage>> entry : batches.entrySet()) {
+            if(!entry.getKey().writeBatch(entry.getValue())) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Pass the demand listeners on to a new output.</P>
+     *
+     * @param output the output
+     */
+    protected void addDemandListeners(IPipeFitting output) {
+        if(output == null) return;
+        for(Runnable listener : demandListeners) {
+            output.addDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Remove the demand listeners from an output no longer routed to.</P>
+     *
+     * @param output the output
+     */
+    protected void removeDemandListeners(IPipeFitting output) {
+        if(output == null || outputs().contains(output)) return;
+        for(Runnable listener : demandListeners) {
+            output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Get the distinct outputs, routes and default route.</P>
+     *
+     * @return the outputs
+     */
+    protected Set<IPipeFitting> outputs() {
+        Set<IPipeFitting> outputs = Collections.newSetFromMap(new IdentityHashMap<>());
+        outputs.addAll(routes.values());
+        IPipeFitting fallback = defaultRoute;
+        if(fallback != null) outputs.add(fallback);
+        return outputs;
+    }
+}
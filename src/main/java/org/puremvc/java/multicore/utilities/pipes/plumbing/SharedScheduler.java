@@ -0,0 +1,45 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * <P>Shared Scheduler.</P>
+ *
+ * <P>The single daemon thread that runs the timed work of all
+ * fittings in the JVM, such as auto-flushing a <code>Queue</code>,
+ * so that fittings with timers do not each need a thread. Timed
+ * work runs on this thread, so it must be short.</P>
+ */
+final class SharedScheduler {
+
+    private static final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "Pipes scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    private SharedScheduler() {
+
+    }
+
+    /**
+     * <P>Get the shared scheduler.</P>
+     *
+     * @return the scheduler
+     */
+    static ScheduledExecutorService get() {
+        return scheduler;
+    }
+}
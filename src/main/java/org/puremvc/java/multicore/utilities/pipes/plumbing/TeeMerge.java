@@ -8,6 +8,10 @@
 package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+
+import java.util.List;
 
 /**
  * <P>Merging Pipe Tee.
@@ -65,4 +69,24 @@ public class TeeMerge extends Pipe {
         return input.connect(this);
     }
 
+    /**
+     * <P>Write the batch of messages to the connected output.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean whether any connected downpipe outputs failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        return output.writeBatch(messages);
+    }
+
+    /**
+     * <P>Offer the message to the connected output.</P>
+     *
+     * @param message the message to write
+     * @return the outcome from the output
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        return output.offer(message);
+    }
+
 }
@@ -9,18 +9,49 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 
 import java.util.ArrayList;
-import java.util.Vector;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 /**
  * <P>Splitting Pipe Tee.</P>
  *
  * <P>Writes input messages to multiple output pipe fittings.</P>
+ *
+ * <P>By default the outputs are written one after another on the
+ * calling thread. If an <code>Executor</code> is set, the outputs
+ * are written in parallel on it, so the latency of a write is that
+ * of the slowest branch rather than the sum of all of them. The
+ * tee either waits for every branch and combines their results, or
+ * returns as soon as the writes have been handed off.</P>
+ *
+ * <P>The outputs are held in an array that is replaced, never
+ * modified, when an output is connected or disconnected. Writing
+ * reads the current array once and allocates nothing, and a write
+ * running during a change sees the outputs as they were when it
+ * started.</P>
  */
 public class TeeSplit implements IPipeFitting {
 
-    protected Vector<IPipeFitting> outputs = new Vector<>();
+    // Snapshot of the connected outputs, replaced on every change
+    protected volatile IPipeFitting[] outputs = new IPipeFitting[0];
+
+    // Executor for parallel fan-out, null writes the outputs in turn
+    protected Executor executor;
+
+    // In parallel fan-out, whether to wait for all branches to finish
+    protected boolean waitForAll = true;
+
+    // Demand listeners, passed on to every output
+    protected final CopyOnWriteArrayList<Runnable> demandListeners = new CopyOnWriteArrayList<>();
 
     /**
      * <P>Constructor.</P>
@@ -53,6 +84,23 @@ public class TeeSplit implements IPipeFitting {
         if(output2 != null) connect(output2);
     }
 
+    /**
+     * <P>Set the parallel fan-out executor.</P>
+     *
+     * <P>When waiting for all branches, the last output is written
+     * on the calling thread while the others run on the executor,
+     * and the result is false if any branch fails or throws. When
+     * not waiting, the result only tells whether every write was
+     * accepted by the executor.</P>
+     *
+     * @param executor executor to write the outputs on, or null to write them in turn
+     * @param waitForAll true to wait for and combine the results of all branches
+     */
+    public void setExecutor(Executor executor, boolean waitForAll) {
+        this.executor = executor;
+        this.waitForAll = waitForAll;
+    }
+
     /**
      * <P>Connect the output IPipeFitting.</P>
      *
@@ -61,8 +109,16 @@ public class TeeSplit implements IPipeFitting {
      *
      * @param output the IPipeFitting to connect for output.
      */
-    public boolean connect(IPipeFitting output) {
-        outputs.add(output);
+    public synchronized boolean connect(IPipeFitting output) {
+        IPipeFitting[] current = outputs;
+        IPipeFitting[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = output;
+        outputs = next;
+        if(output != null) {
+            for(Runnable listener : demandListeners) {
+                output.addDemandListener(listener);
+            }
+        }
         return true;
     }
 
@@ -73,8 +129,12 @@ public class TeeSplit implements IPipeFitting {
      * method repeatedly untill it returns null.</P>
      *
      */
-    public IPipeFitting disconnect() {
-        return outputs.isEmpty() ? null : outputs.remove(outputs.size() - 1);
+    public synchronized IPipeFitting disconnect() {
+        IPipeFitting[] current = outputs;
+        if(current.length == 0) return null;
+        outputs = Arrays.copyOf(current, current.length - 1);
+        removeDemandListeners(current[current.length - 1]);
+        return current[current.length - 1];
     }
 
     /**
@@ -91,8 +151,19 @@ public class TeeSplit implements IPipeFitting {
      * @param target the IPipeFitting to connect for output.
      * @return disconnected Pipe
      */
-    public IPipeFitting disconnectFitting(IPipeFitting target) {
-        return outputs.remove(target) ? target : null;
+    public synchronized IPipeFitting disconnectFitting(IPipeFitting target) {
+        IPipeFitting[] current = outputs;
+        for(int i = 0; i < current.length; i++) {
+            if(Objects.equals(target, current[i])) {
+                IPipeFitting[] next = new IPipeFitting[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                outputs = next;
+                removeDemandListeners(current[i]);
+                return target;
+            }
+        }
+        return null;
     }
 
     /**
@@ -105,11 +176,170 @@ public class TeeSplit implements IPipeFitting {
      * @return Boolean whether any connected outputs failed
      */
     public boolean write(IPipeMessage message) {
-        final boolean[] success = {true};
-        ArrayList<IPipeFitting> temp = new ArrayList<>(outputs);
-        temp.forEach(output -> {
-            if(!output.write(message)) success[0] = false;
-        });
-        return success[0];
+        if(executor != null) return writeParallel(outputs, output -> WriteOutcome.of(output.write(message))).isAccepted();
+        boolean success = true;
+        for(IPipeFitting output : outputs) {
+            if(!output.write(message)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Offer the message to all connected outputs.</P>
+     *
+     * <P>Every output is asked for room first, and if any is full
+     * the message is written to none of them and FULL is returned.
+     * Otherwise all outputs are written to, and their outcomes
+     * combined: PARTIAL if an output filled up in the meantime, so
+     * the message reached some outputs but not others, otherwise
+     * DROPPED if any output failed. With an executor that is not
+     * waited for, the outcome only tells whether every write was
+     * accepted by the executor.</P>
+     *
+     * @param message the message to write
+     * @return the combined outcome
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        IPipeFitting[] temp = outputs;
+        if(temp.length == 0) return WriteOutcome.ACCEPTED;
+        for(IPipeFitting output : temp) {
+            if(!output.hasRoom(message)) return WriteOutcome.FULL;
+        }
+        if(executor != null) return writeParallel(temp, output -> output.offer(message));
+        WriteOutcome outcome = temp[0].offer(message);
+        for(int i = 1; i < temp.length; i++) {
+            outcome = outcome.combine(temp[i].offer(message));
+        }
+        return outcome;
+    }
+
+    /**
+     * <P>Is there room for the message on every connected output?</P>
+     *
+     * @param message the message to write
+     * @return false if any output would turn the message away as FULL
+     */
+    public boolean hasRoom(IPipeMessage message) {
+        for(IPipeFitting output : outputs) {
+            if(!output.hasRoom(message)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * <P>Add a demand listener.</P>
+     *
+     * <P>It is passed on to all connected outputs, and to any
+     * output connected later.</P>
+     *
+     * @param listener the listener to call when there is room
+     */
+    public synchronized void addDemandListener(Runnable listener) {
+        if(!demandListeners.addIfAbsent(listener)) return;
+        for(IPipeFitting output : outputs) {
+            output.addDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Remove a demand listener from all connected outputs.</P>
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeDemandListener(Runnable listener) {
+        demandListeners.remove(listener);
+        for(IPipeFitting output : outputs) {
+            output.removeDemandListener(listener);
+        }
+    }
+
+    /**
+     * <P>Write the batch of messages to all connected outputs.</P>
+     *
+     * <P>Each output is given the whole batch in one call. When the
+     * branches run on the executor without waiting for them, they
+     * are given a copy, so the caller may reuse its list.</P>
+     *
+     * @param messages the messages to write
+     * @return Boolean whether any connected outputs failed
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        if(executor != null) {
+            List<IPipeMessage> batch = waitForAll ? messages : new ArrayList<>(messages);
+            return writeParallel(outputs, output -> WriteOutcome.of(output.writeBatch(batch))).isAccepted();
+        }
+        boolean success = true;
+        for(IPipeFitting output : outputs) {
+            if(!output.writeBatch(messages)) success = false;
+        }
+        return success;
+    }
+
+    /**
+     * <P>Write to the outputs on the executor.</P>
+     *
+     * <P>When waiting for all branches, their outcomes are combined,
+     * and a branch that throws is DROPPED. Otherwise each branch is
+     * ACCEPTED if the executor took it and DROPPED if it did not.</P>
+     *
+     * @param temp the outputs
+     * @param write the write to perform on each output
+     * @return the combined outcome
+     */
+    protected WriteOutcome writeParallel(IPipeFitting[] temp, Function<IPipeFitting, WriteOutcome> write) {
+        if(temp.length == 0) return WriteOutcome.ACCEPTED;
+
+        WriteOutcome outcome = null;
+        if(!waitForAll) {
+            for(IPipeFitting output : temp) {
+                WriteOutcome current = WriteOutcome.ACCEPTED;
+                try {
+                    executor.execute(() -> write.apply(output));
+                } catch (RejectedExecutionException exception) {
+                    current = WriteOutcome.DROPPED;
+                }
+                outcome = outcome == null ? current : outcome.combine(current);
+            }
+            return outcome;
+        }
+
+        int last = temp.length - 1;
+        ArrayList<CompletableFuture<WriteOutcome>> branches = new ArrayList<>(last);
+        for(int i = 0; i < last; i++) {
+            IPipeFitting output = temp[i];
+            try {
+                branches.add(CompletableFuture.supplyAsync(() -> write.apply(output), executor));
+            } catch (RejectedExecutionException exception) {
+                outcome = outcome == null ? WriteOutcome.DROPPED : outcome.combine(WriteOutcome.DROPPED);
+            }
+        }
+        WriteOutcome current;
+        try {
+            current = write.apply(temp[last]);
+        } catch (Exception exception) {
+            current = WriteOutcome.DROPPED;
+        }
+        outcome = outcome == null ? current : outcome.combine(current);
+        for(CompletableFuture<WriteOutcome> branch : branches) {
+            try {
+                current = branch.join();
+            } catch (Exception exception) {
+                current = WriteOutcome.DROPPED;
+            }
+            outcome = outcome.combine(current);
+        }
+        return outcome;
+    }
+
+    /**
+     * <P>Remove the demand listeners from a disconnected output.</P>
+     *
+     * @param output the disconnected output
+     */
+    protected void removeDemandListeners(IPipeFitting output) {
+        if(output == null) return;
+        for(Runnable listener : demandListeners) {
+            output.removeDemandListener(listener);
+        }
     }
 }
@@ -0,0 +1,236 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * <P>Transform Filter.</P>
+ *
+ * <P>A Filter whose function returns the message to write on: the
+ * message itself to pass it, a different message to replace it, or
+ * null to drop it. Dropping a message this way costs nothing more
+ * than passing it, unlike throwing from a Filter's function, and is
+ * counted separately from errors.</P>
+ *
+ * <P>A dropped message is not a failure: <code>write</code> returns
+ * true, and <code>offer</code> returns <code>WriteOutcome.DROPPED</code>.
+ * A function that throws is counted as an error and
+ * <code>write</code> returns false, as with a Filter.</P>
+ *
+ * <P>It answers the same control messages as a Filter. A filter
+ * function sent with SET_FILTER replaces the transform with one that
+ * calls it and passes the message on.</P>
+ */
+public class TransformFilter extends Filter {
+
+    protected BiFunction<IPipeMessage, Object, IPipeMessage> transform = (message, params) -> message;
+
+    protected final LongAdder droppedCount = new LongAdder();
+
+    protected final LongAdder errorCount = new LongAdder();
+
+    // Constructor
+    public TransformFilter(String name, IPipeFitting output, BiFunction<IPipeMessage, Object, IPipeMessage> transform, Object params) {
+        super(name, output, null, params);
+        if(transform != null) this.transform = transform;
+    }
+
+    // Constructor
+    public TransformFilter(String name, IPipeFitting output, BiFunction<IPipeMessage, Object, IPipeMessage> transform) {
+        this(name, output, transform, null);
+    }
+
+    // Constructor
+    public TransformFilter(String name, IPipeFitting output) {
+        this(name, output, null, null);
+    }
+
+    /**
+     * <P>Create a TransformFilter that passes the messages a predicate accepts.</P>
+     *
+     * @param name name of the filter
+     * @param output output pipe
+     * @param predicate returns true for the messages to pass
+     * @return the filter
+     */
+    public static TransformFilter fromPredicate(String name, IPipeFitting output, Predicate<IPipeMessage> predicate) {
+        return new TransformFilter(name, output, (message, params) -> predicate.test(message) ? message : null);
+    }
+
+    /**
+     * <P>Handle the incoming message.</P>
+     *
+     * <P>Normal messages are transformed (unless in BYPASS mode) and
+     * the result written to the output. Control messages are handled
+     * as by a Filter.</P>
+     *
+     * @return Boolean True if the message was written or dropped, false
+     * if the transform throws an error or subsequent operations fail.
+     */
+    public boolean write(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return super.write(message);
+        try {
+            IPipeMessage result = applyTransform(message);
+            return result == null || output.write(result);
+        } catch (Exception exception) {
+            errorCount.increment();
+            return false;
+        }
+    }
+
+    /**
+     * <P>Handle the incoming message, reporting the outcome.</P>
+     *
+     * <P>A message the transform drops, or that makes it throw, is
+     * reported as DROPPED. As with a Filter, room is checked before
+     * the transform runs, and a fitting that fills up after it ran
+     * is reported as PARTIAL. With no output connected, a normal
+     * message is DROPPED.</P>
+     *
+     * @param message the message to handle
+     * @return the outcome of the write
+     */
+    public WriteOutcome offer(IPipeMessage message) {
+        if(message.getKind() != Message.KIND_NORMAL) return super.offer(message);
+        try {
+            if(output == null) return WriteOutcome.DROPPED;
+            if(!output.hasRoom(message)) return WriteOutcome.FULL;
+            IPipeMessage result = applyTransform(message);
+            if(result == null) return WriteOutcome.DROPPED;
+            WriteOutcome outcome = output.offer(result);
+            return modeKind == FilterControlMessage.KIND_FILTER ? outcome.afterAction() : outcome;
+        } catch (Exception exception) {
+            errorCount.increment();
+            return WriteOutcome.DROPPED;
+        }
+    }
+
+    /**
+     * <P>Handle a batch of incoming messages.</P>
+     *
+     * <P>Each message is handled as by <code>write</code>, in order,
+     * and the results are written to the output as one batch.</P>
+     *
+     * @param messages the messages to handle
+     * @return Boolean True if no transform throws an error and subsequent operations
+     * in the pipeline succede.
+     */
+    public boolean writeBatch(List<IPipeMessage> messages) {
+        boolean success = true;
+        List<IPipeMessage> batch = new ArrayList<>(messages.size());
+
+        for(IPipeMessage message : messages) {
+            switch (message.getKind()) {
+                case Message.KIND_NORMAL:
+                    try {
+                        IPipeMessage result = applyTransform(message);
+                        if(result != null) batch.add(result);
+                    } catch (Exception exception) {
+                        errorCount.increment();
+                        success = false;
+                    }
+                    break;
+
+                case FilterControlMessage.KIND_SET_PARAMS:
+                case FilterControlMessage.KIND_SET_FILTER:
+                case FilterControlMessage.KIND_BYPASS:
+                case FilterControlMessage.KIND_FILTER:
+                    if(isTarget(message)) {
+                        control(message);
+                    } else {
+                        batch.add(message);
+                    }
+                    break;
+
+                default:
+                    batch.add(message);
+            }
+        }
+
+        if(!batch.isEmpty()) {
+            try {
+                if(!output.writeBatch(batch)) success = false;
+            } catch (Exception exception) {
+                return false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * <P>Set the transform function.</P>
+     *
+     * <P>It must accept two arguments; an IPipeMessage, and a
+     * parameter Object, and return the message to write on, or
+     * null to drop the message.</P>
+     *
+     * @param transform the transform function
+     */
+    public void setTransform(BiFunction<IPipeMessage, Object, IPipeMessage> transform) {
+        this.transform = transform;
+    }
+
+    /**
+     * <P>Set a Filter function as the transform.</P>
+     *
+     * <P>The message is passed to the filter function and then
+     * written on.</P>
+     *
+     * @param filter the filter function.
+     */
+    public void setFilter(BiConsumer<IPipeMessage, Object> filter) {
+        super.setFilter(filter);
+        this.transform = (message, params) -> {
+            filter.accept(message, params);
+            return message;
+        };
+    }
+
+    /**
+     * <P>Get the number of messages the transform dropped.</P>
+     *
+     * @return the count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * <P>Get the number of messages the transform or output threw an error on.</P>
+     *
+     * @return the count
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * <P>Transform the message.</P>
+     *
+     * @param message message to be transformed
+     * @return the message to write on, or null if it was dropped
+     */
+    protected IPipeMessage applyTransform(IPipeMessage message) {
+        if(modeKind != FilterControlMessage.KIND_FILTER) return message;
+        IPipeMessage result = transform.apply(message, params);
+        if(result == null) droppedCount.increment();
+        return result;
+    }
+}
@@ -0,0 +1,214 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the Aggregator class.
+ */
+public class AggregatorTest {
+
+    /**
+     * Test batching by count, per key.
+     */
+    @Test
+    public void testBatchByCountAndKey() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // create an aggregator batching 2 messages per header
+        Aggregator aggregator = new Aggregator(new PipeListener(this, received::add), 2);
+        aggregator.setKeyExtractor(IPipeMessage::getHeader);
+        aggregator.write(new Message(Message.NORMAL, "a", 1));
+        aggregator.write(new Message(Message.NORMAL, "b", 2));
+        Assertions.assertEquals(0, received.size(), "Expecting no batch yet");
+        aggregator.write(new Message(Message.NORMAL, "a", 3, Message.PRIORITY_HIGH));
+
+        // test assertions
+        Assertions.assertEquals(1, received.size(), "Expecting 1 batch");
+        List<?> batch = (List<?>)received.get(0).getBody();
+        Assertions.assertEquals(2, batch.size(), "Expecting 2 messages in batch");
+        Assertions.assertEquals(1, ((IPipeMessage)batch.get(0)).getBody(), "Expecting first 'a' message");
+        Assertions.assertEquals(3, ((IPipeMessage)batch.get(1)).getBody(), "Expecting second 'a' message");
+        Assertions.assertEquals(Message.PRIORITY_HIGH, received.get(0).getPriority(), "Expecting most urgent priority");
+        Assertions.assertEquals(1, aggregator.getSize(), "Expecting 'b' message pending");
+    }
+
+    /**
+     * Test a control message writes out pending batches before passing through.
+     */
+    @Test
+    public void testControlMessageFlushesBatches() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // create an aggregator summing bodies, in front of a queue
+        Queue queue = new Queue(new PipeListener(this, received::add));
+        Aggregator aggregator = new Aggregator(queue, 0, 1000, 0, TimeUnit.MILLISECONDS);
+        aggregator.setMessageSizer(message -> 100);
+        aggregator.setCombine(messages -> {
+            int sum = 0;
+            for(IPipeMessage message : messages) sum += (Integer)message.getBody();
+            return new Message(Message.NORMAL, null, sum);
+        });
+        aggregator.write(new Message(Message.NORMAL, null, 1));
+        aggregator.write(new Message(Message.NORMAL, null, 2));
+        aggregator.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertEquals(1, received.size(), "Expecting 1 combined message");
+        Assertions.assertEquals(3, received.get(0).getBody(), "Expecting bodies summed");
+        Assertions.assertEquals(0, aggregator.getSize(), "Expecting nothing pending");
+    }
+
+    /**
+     * Test a batch is written when its time window passes.
+     */
+    @Test
+    public void testBatchByWindow() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(1);
+        int[] size = {0};
+
+        // create an aggregator with a 20 ms window
+        Aggregator aggregator = new Aggregator(new PipeListener(this, message -> {
+            size[0] = ((List<?>)message.getBody()).size();
+            received.countDown();
+        }), 100, 0, 20, TimeUnit.MILLISECONDS);
+        aggregator.write(new Message(Message.NORMAL));
+        aggregator.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS), "Expecting batch written after window");
+        Assertions.assertEquals(2, size[0], "Expecting 2 messages in batch");
+    }
+
+    /**
+     * Test a control message does not overtake a timed batch being written.
+     */
+    @Test
+    public void testControlMessageWaitsForTimedBatch() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // create an aggregator whose combine holds the first timed batch
+        Aggregator aggregator = new Aggregator(new PipeListener(this, received::add), 100, 0, 10, TimeUnit.MILLISECONDS);
+        aggregator.setCombine(messages -> {
+            if(entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Aggregator.combineAsList(messages);
+        });
+        aggregator.write(new Message(Message.NORMAL));
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS), "Expecting timed batch combining");
+
+        // write a control message while the timed batch is held
+        Thread flusher = new Thread(() -> aggregator.write(new QueueControlMessage(QueueControlMessage.FLUSH)));
+        flusher.start();
+        Thread.sleep(50);
+
+        // test assertions
+        Assertions.assertTrue(received.isEmpty(), "Expecting control message held behind timed batch");
+        release.countDown();
+        flusher.join(5000);
+        Assertions.assertEquals(2, received.size(), "Expecting batch and control message written");
+        Assertions.assertEquals(Message.NORMAL, received.get(0).getType(), "Expecting batch written first");
+        Assertions.assertEquals(QueueControlMessage.FLUSH, received.get(1).getType(), "Expecting control message written second");
+    }
+
+    /**
+     * Test a timed batch whose combine function throws is reported.
+     */
+    @Test
+    public void testTimedBatchFailure() throws InterruptedException {
+        CountDownLatch handled = new CountDownLatch(1);
+        List<Object> failures = new ArrayList<>();
+
+        // create an aggregator whose combine function throws
+        Aggregator aggregator = new Aggregator(new PipeListener(this, message -> {}), 100, 0, 10, TimeUnit.MILLISECONDS);
+        aggregator.setCombine(messages -> {
+            throw new IllegalStateException("combine failed");
+        });
+        aggregator.setFailureHandler((messages, exception) -> {
+            failures.add(messages.size());
+            failures.add(exception);
+            handled.countDown();
+        });
+        aggregator.write(new Message(Message.NORMAL));
+        aggregator.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertTrue(handled.await(5, TimeUnit.SECONDS), "Expecting failure handled");
+        Assertions.assertEquals(2, failures.get(0), "Expecting failed batch passed to handler");
+        Assertions.assertTrue(failures.get(1) instanceof IllegalStateException, "Expecting exception passed to handler");
+        Assertions.assertEquals(1, aggregator.getFailedCount(), "Expecting 1 failed batch");
+    }
+
+    /**
+     * Test a timed batch is written on the expiry executor, not the scheduler thread.
+     */
+    @Test
+    public void testTimedBatchOnExecutor() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(1);
+        String[] thread = new String[1];
+
+        // create an aggregator whose expiry executor runs on its own thread
+        Aggregator aggregator = new Aggregator(new PipeListener(this, message -> {
+            thread[0] = Thread.currentThread().getName();
+            received.countDown();
+        }), 100, 0, 10, TimeUnit.MILLISECONDS);
+        aggregator.setExpiryExecutor(task -> new Thread(task, "expiry").start());
+        aggregator.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS), "Expecting batch written after window");
+        Assertions.assertEquals("expiry", thread[0], "Expecting batch written on the expiry executor");
+    }
+
+    /**
+     * Test a timed batch rejected by the expiry executor is written on the next write.
+     */
+    @Test
+    public void testRejectedExpiry() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+
+        // create an aggregator by header whose expiry executor rejects everything
+        Aggregator aggregator = new Aggregator(new PipeListener(this, received::add), 100, 0, 10, TimeUnit.MILLISECONDS);
+        aggregator.setKeyExtractor(IPipeMessage::getHeader);
+        aggregator.setExpiryExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+        aggregator.write(new Message(Message.NORMAL, "a"));
+        Thread.sleep(100);
+        Assertions.assertTrue(received.isEmpty(), "Expecting rejected batch still pending");
+
+        // write a message for another key after the window passed
+        aggregator.write(new Message(Message.NORMAL, "b"));
+
+        // test assertions
+        Assertions.assertEquals(1, received.size(), "Expecting expired batch written");
+        Assertions.assertEquals(1, aggregator.getSize(), "Expecting only the new batch pending");
+        Assertions.assertEquals(0, aggregator.getFailedCount(), "Expecting expired batch not counted as failed");
+    }
+
+}
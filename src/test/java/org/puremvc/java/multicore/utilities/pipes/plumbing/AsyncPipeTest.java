@@ -0,0 +1,150 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the AsyncPipe class.
+ */
+public class AsyncPipeTest {
+
+    /**
+     * Test messages are delivered in order on the consumer thread.
+     * <P>
+     * Writes messages to an AsyncPipe with each wait strategy and
+     * tests that they all arrive, in the order written, on a thread
+     * other than the writer's.</P>
+     */
+    @Test
+    public void testDeliveryInOrder() throws InterruptedException {
+        for(String strategy : new String[]{AsyncPipe.WAIT_BLOCK, AsyncPipe.WAIT_YIELD, AsyncPipe.WAIT_SPIN}) {
+            final int count = 1000;
+            List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch latch = new CountDownLatch(count);
+
+            // create async pipe with a listener recording the message and thread
+            AsyncPipe pipe = new AsyncPipe(new PipeListener(this, message -> {
+                received.add(message);
+                threads.add(Thread.currentThread());
+                latch.countDown();
+            }), 64, strategy);
+
+            // write messages, retrying while the buffer is full
+            ArrayList<IPipeMessage> sent = new ArrayList<>();
+            for(int i = 0; i < count; i++) {
+                IPipeMessage message = new Message(Message.NORMAL, i);
+                while(!pipe.write(message)) Thread.yield();
+                sent.add(message);
+            }
+
+            // test assertions
+            Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS), "Expecting all messages delivered");
+            Assertions.assertEquals(sent, received, "Expecting messages received in order written");
+            Assertions.assertNotSame(Thread.currentThread(), threads.get(0), "Expecting delivery on consumer thread");
+            Assertions.assertEquals(0L, pipe.getFailedCount(), "Expecting no failed deliveries");
+            pipe.stop();
+        }
+    }
+
+    /**
+     * Test writing to a full buffer.
+     * <P>
+     * Blocks the consumer inside the listener, fills the buffer,
+     * and tests that further writes return false right away. Then
+     * releases the consumer, tests the buffered messages are
+     * delivered, and that writes are rejected after stopping.</P>
+     */
+    @Test
+    public void testWriteToFullBuffer() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(5);
+
+        // create async pipe with a listener that blocks on the first message
+        AsyncPipe pipe = new AsyncPipe(new PipeListener(this, message -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                return;
+            }
+            delivered.countDown();
+        }), 4);
+
+        // hold the consumer in the listener, then fill the buffer
+        Assertions.assertTrue(pipe.write(new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS), "Expecting consumer entered listener");
+        for(int i = 0; i < 4; i++) {
+            Assertions.assertTrue(pipe.write(new Message(Message.NORMAL)), "Expecting buffered message accepted");
+        }
+
+        // test that the full buffer rejects the message
+        Assertions.assertEquals(4, pipe.getSize(), "Expecting 4 buffered messages");
+        Assertions.assertFalse(pipe.write(new Message(Message.NORMAL)), "Expecting full buffer rejects message");
+        Assertions.assertEquals(WriteOutcome.FULL, pipe.offer(new Message(Message.NORMAL)), "Expecting FULL from full buffer");
+        Assertions.assertFalse(pipe.hasRoom(new Message(Message.NORMAL)), "Expecting no room in full buffer");
+
+        // release the consumer and test delivery
+        release.countDown();
+        Assertions.assertTrue(delivered.await(10, TimeUnit.SECONDS), "Expecting buffered messages delivered");
+
+        // test that a stopped pipe rejects messages
+        pipe.stop();
+        Assertions.assertFalse(pipe.write(new Message(Message.NORMAL)), "Expecting stopped pipe rejects message");
+        Assertions.assertEquals(WriteOutcome.DROPPED, pipe.offer(new Message(Message.NORMAL)), "Expecting DROPPED from stopped pipe");
+    }
+
+    /**
+     * Test every accepted message is delivered when stopping under load.
+     * <P>
+     * Writes from several threads while the pipe is stopped, and
+     * tests that exactly the accepted messages are delivered.</P>
+     */
+    @Test
+    public void testStopWhileWriting() throws InterruptedException {
+        for(int round = 0; round < 20; round++) {
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger delivered = new AtomicInteger();
+            AsyncPipe pipe = new AsyncPipe(new PipeListener(this, message -> delivered.incrementAndGet()), 64, AsyncPipe.WAIT_YIELD);
+            Assertions.assertFalse(pipe.consumer.isAlive(), "Expecting consumer not started by constructor");
+            pipe.start();
+
+            // write from several threads, then stop
+            Thread[] writers = new Thread[4];
+            for(int i = 0; i < writers.length; i++) {
+                writers[i] = new Thread(() -> {
+                    for(int j = 0; j < 2000; j++) {
+                        if(pipe.write(new Message(Message.NORMAL))) accepted.incrementAndGet();
+                    }
+                });
+                writers[i].start();
+            }
+            pipe.stop();
+            for(Thread writer : writers) writer.join();
+            pipe.consumer.join(10000);
+
+            // test assertions
+            Assertions.assertFalse(pipe.consumer.isAlive(), "Expecting consumer stopped");
+            Assertions.assertEquals(accepted.get(), delivered.get(), "Expecting every accepted message delivered");
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test the ConcurrentQueue class.
+ */
+public class ConcurrentQueueTest {
+
+    private class Prop {
+        public int producer;
+        public int sequence;
+
+        public Prop(int producer, int sequence) {
+            this.producer = producer;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Test the Sort-by-Priority and FIFO modes.
+     * <P>
+     * Writes messages with unsorted priorities in SORT mode,
+     * flushes, and tests they were received by priority, equal
+     * priorities in the order sent. Then switches to FIFO mode,
+     * writes them again, flushes, and tests they were received
+     * in the order sent.</P>
+     */
+    @Test
+    public void testSortByPriorityAndFIFO() {
+        // create messages to send to the queue
+        IPipeMessage message1 = new Message(Message.NORMAL, null, null, Message.PRIORITY_MED);
+        IPipeMessage message2 = new Message(Message.NORMAL, null, null, Message.PRIORITY_LOW);
+        IPipeMessage message3 = new Message(Message.NORMAL, null, null, Message.PRIORITY_HIGH);
+        IPipeMessage message4 = new Message(Message.NORMAL, null, null, Message.PRIORITY_MED);
+
+        // create queue, attaching an anonymous listener to its output
+        ConcurrentQueue queue = new ConcurrentQueue(new PipeListener(this, this::callBackMethod));
+
+        // write messages in sort mode and flush
+        queue.write(new QueueControlMessage(QueueControlMessage.SORT));
+        queue.write(message1);
+        queue.write(message2);
+        queue.write(message3);
+        queue.write(message4);
+
+        // test that no messages were received (they've been enqueued)
+        Assertions.assertEquals(0, messagesReceived.size(), "Expecting received 0 messages");
+
+        boolean flushWritten = queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test that the message order is sorted
+        Assertions.assertTrue(flushWritten, "Expecting wrote flush message to queue");
+        Assertions.assertEquals(4, messagesReceived.size(), "Expecting received 4 messages");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received1 === message3");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received2 === message1");
+        Assertions.assertSame(message4, messagesReceived.remove(0), "Expecting received3 === message4");
+        Assertions.assertSame(message2, messagesReceived.remove(0), "Expecting received4 === message2");
+
+        // write messages in fifo mode and flush
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(message1);
+        queue.write(message2);
+        queue.write(message3);
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test message order is FIFO
+        Assertions.assertEquals(3, messagesReceived.size(), "Expecting received 3 messages");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received1 === message1");
+        Assertions.assertSame(message2, messagesReceived.remove(0), "Expecting received2 === message2");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received3 === message3");
+    }
+
+    /**
+     * Test writing from many threads while flushing.
+     * <P>
+     * Starts several producer threads writing to a FIFO mode queue
+     * while another thread keeps flushing it. After a final flush,
+     * tests that every message was received exactly once, and that
+     * each producer's messages arrived in the order it wrote them.</P>
+     */
+    @Test
+    public void testConcurrentWritesAndFlushes() throws InterruptedException {
+        final int producers = 8;
+        final int count = 20000;
+
+        // create queue, attaching an anonymous listener to its output
+        ConcurrentQueue queue = new ConcurrentQueue(new PipeListener(this, this::callBackMethod));
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+
+        // start producers, released together
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> threads = new ArrayList<>();
+        for(int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                for(int i = 0; i < count; i++) {
+                    queue.write(new Message(Message.NORMAL, new Prop(producer, i)));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // keep flushing while producers write
+        AtomicBoolean done = new AtomicBoolean(false);
+        Thread flusher = new Thread(() -> {
+            while(!done.get()) queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        });
+        flusher.start();
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+        done.set(true);
+        flusher.join();
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test that no message was lost or duplicated, and per-producer order
+        Assertions.assertEquals(producers * count, messagesReceived.size(), "Expecting received all messages");
+        HashSet<IPipeMessage> unique = new HashSet<>(messagesReceived);
+        Assertions.assertEquals(producers * count, unique.size(), "Expecting no duplicate messages");
+        int[] next = new int[producers];
+        for(IPipeMessage message : messagesReceived) {
+            Prop prop = (Prop)message.getHeader();
+            Assertions.assertEquals(next[prop.producer]++, prop.sequence, "Expecting producer order kept");
+        }
+    }
+
+    /**
+     * Test a bounded queue reports FULL and signals demand on flush.
+     */
+    @Test
+    public void testCapacity() {
+        int[] signals = {0};
+
+        // create a queue with room for 2 messages
+        ConcurrentQueue queue = new ConcurrentQueue(new PipeListener(this, this::callBackMethod), 2);
+        queue.addDemandListener(() -> signals[0]++);
+
+        // test assertions
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, queue.offer(new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertTrue(queue.write(new Message(Message.NORMAL)), "Expecting second message accepted");
+        Assertions.assertFalse(queue.hasRoom(new Message(Message.NORMAL)), "Expecting no room when full");
+        Assertions.assertEquals(WriteOutcome.FULL, queue.offer(new Message(Message.NORMAL)), "Expecting FULL when full");
+        Assertions.assertFalse(queue.write(new Message(Message.NORMAL)), "Expecting write fails when full");
+        Assertions.assertEquals(2, queue.getSize(), "Expecting 2 messages stored");
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(2, messagesReceived.size(), "Expecting 2 messages received");
+        Assertions.assertEquals(1, signals[0], "Expecting demand signalled on flush");
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, queue.offer(new Message(Message.NORMAL)), "Expecting room after flush");
+    }
+
+    /**
+     * Array of received messages.
+     * <P>
+     * Used by <code>callBackMedhod</code> as a place to store
+     * the recieved messages.</P>
+     */
+    private ArrayList<IPipeMessage> messagesReceived = new ArrayList<>();
+
+    /**
+     * Callback given to <code>PipeListener</code> for incoming message.
+     */
+    private void callBackMethod(IPipeMessage message) {
+        messagesReceived.add(message);
+    }
+
+}
@@ -0,0 +1,212 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the FairMerge class.
+ */
+public class FairMergeTest {
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Create a listener that holds the consumer on the first message, and records the rest.
+     */
+    private IPipeFitting holdingListener(List<IPipeMessage> received, CountDownLatch delivered) {
+        return new PipeListener(this, message -> {
+            if(entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                return;
+            }
+            received.add(message);
+            delivered.countDown();
+        });
+    }
+
+    /**
+     * Test weighted round-robin gives each input its share of the output.
+     */
+    @Test
+    public void testWeightedRoundRobin() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(12);
+
+        // create a weighted merge with inputs of weight 2 and 1
+        FairMerge merge = new FairMerge(holdingListener(received, delivered), FairMerge.DRAIN_WEIGHTED, 8);
+        FairMerge.Input input1 = merge.createInput(2, Message.PRIORITY_MED);
+        FairMerge.Input input2 = merge.createInput(1, Message.PRIORITY_MED);
+
+        // hold the consumer, then flood both inputs
+        Assertions.assertTrue(input1.write(new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS), "Expecting consumer entered listener");
+        for(int i = 0; i < 6; i++) {
+            input1.write(new Message(Message.NORMAL, "input1", i));
+            input2.write(new Message(Message.NORMAL, "input2", i));
+        }
+        release.countDown();
+
+        // test assertions
+        Assertions.assertTrue(delivered.await(10, TimeUnit.SECONDS), "Expecting all messages delivered");
+        int fromInput1 = 0;
+        for(int i = 0; i < 6; i++) {
+            if("input1".equals(received.get(i).getHeader())) fromInput1++;
+        }
+        Assertions.assertEquals(4, fromInput1, "Expecting input1 has 2 of every 3 messages");
+        Assertions.assertEquals(0, merge.getSize(), "Expecting buffers drained");
+        merge.stop();
+    }
+
+    /**
+     * Test strict priority drains the most urgent input first.
+     */
+    @Test
+    public void testStrictPriority() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(8);
+
+        // create a priority merge with a low and a high priority input
+        FairMerge merge = new FairMerge(holdingListener(received, delivered), FairMerge.DRAIN_PRIORITY);
+        Pipe low = new Pipe();
+        Pipe high = new Pipe();
+        Assertions.assertTrue(merge.connectInput(low, 1, Message.PRIORITY_LOW), "Expecting low input connected");
+        Assertions.assertTrue(merge.connectInput(high, 1, Message.PRIORITY_HIGH), "Expecting high input connected");
+
+        // hold the consumer, then fill the low input before the high one
+        low.write(new Message(Message.NORMAL));
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS), "Expecting consumer entered listener");
+        for(int i = 0; i < 4; i++) low.write(new Message(Message.NORMAL, "low", i));
+        for(int i = 0; i < 4; i++) high.write(new Message(Message.NORMAL, "high", i));
+        release.countDown();
+
+        // test assertions
+        Assertions.assertTrue(delivered.await(10, TimeUnit.SECONDS), "Expecting all messages delivered");
+        for(int i = 0; i < 4; i++) {
+            Assertions.assertEquals("high", received.get(i).getHeader(), "Expecting high priority messages first");
+            Assertions.assertEquals(i, received.get(i).getBody(), "Expecting input order kept");
+            Assertions.assertEquals("low", received.get(i + 4).getHeader(), "Expecting low priority messages last");
+        }
+        merge.stop();
+    }
+
+    /**
+     * Test a full input rejects messages and signals demand when drained.
+     */
+    @Test
+    public void testFullInputAndDemand() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(2);
+        AtomicInteger signals = new AtomicInteger();
+
+        // create a merge with room for 2 messages on each input
+        FairMerge merge = new FairMerge(holdingListener(received, delivered), FairMerge.DRAIN_WEIGHTED, 2);
+        FairMerge.Input input = merge.createInput(1, Message.PRIORITY_MED);
+        input.addDemandListener(signals::incrementAndGet);
+
+        // hold the consumer, then fill the input
+        input.write(new Message(Message.NORMAL));
+        Assertions.assertTrue(entered.await(10, TimeUnit.SECONDS), "Expecting consumer entered listener");
+        Assertions.assertTrue(input.write(new Message(Message.NORMAL)), "Expecting second message accepted");
+        Assertions.assertTrue(input.write(new Message(Message.NORMAL)), "Expecting third message accepted");
+
+        // test assertions
+        Assertions.assertFalse(input.write(new Message(Message.NORMAL)), "Expecting write fails when full");
+        Assertions.assertEquals(WriteOutcome.FULL, input.offer(new Message(Message.NORMAL)), "Expecting FULL when full");
+        release.countDown();
+        Assertions.assertTrue(delivered.await(10, TimeUnit.SECONDS), "Expecting buffered messages delivered");
+        Assertions.assertEquals(1, signals.get(), "Expecting demand signalled once");
+
+        merge.stop();
+        Assertions.assertEquals(WriteOutcome.DROPPED, input.offer(new Message(Message.NORMAL)), "Expecting DROPPED after stop");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> merge.createInput(0, Message.PRIORITY_MED), "Expecting weight must be positive");
+    }
+
+    /**
+     * Test messages are held until an output is connected, and a disconnected input drops messages.
+     */
+    @Test
+    public void testHoldUntilConnectedAndDisconnectInput() throws InterruptedException {
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(3);
+
+        // write to a merge with no output
+        FairMerge merge = new FairMerge();
+        FairMerge.Input input = merge.createInput(1, Message.PRIORITY_MED);
+        for(int i = 0; i < 3; i++) {
+            Assertions.assertTrue(input.write(new Message(Message.NORMAL, null, i)), "Expecting message accepted");
+        }
+        Thread.sleep(50);
+
+        // test assertions
+        Assertions.assertEquals(0, merge.getFailedCount(), "Expecting no failed deliveries while unconnected");
+        Assertions.assertEquals(3, merge.getSize(), "Expecting messages held");
+        merge.connect(new PipeListener(this, message -> {
+            received.add(message);
+            delivered.countDown();
+        }));
+        Assertions.assertTrue(delivered.await(10, TimeUnit.SECONDS), "Expecting held messages delivered");
+        for(int i = 0; i < 3; i++) Assertions.assertEquals(i, received.get(i).getBody(), "Expecting input order kept");
+
+        Assertions.assertSame(input, merge.disconnectInput(input), "Expecting input disconnected");
+        Assertions.assertEquals(WriteOutcome.DROPPED, input.offer(new Message(Message.NORMAL)), "Expecting DROPPED from disconnected input");
+        merge.stop();
+    }
+
+    /**
+     * Test every accepted message is delivered when stopping under load.
+     */
+    @Test
+    public void testStopWhileWriting() throws InterruptedException {
+        for(int round = 0; round < 20; round++) {
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger delivered = new AtomicInteger();
+            FairMerge merge = new FairMerge(new PipeListener(this, message -> delivered.incrementAndGet()));
+            Assertions.assertFalse(merge.consumer.isAlive(), "Expecting consumer not started by constructor");
+
+            // write to an input each from several threads, then stop
+            Thread[] writers = new Thread[4];
+            for(int i = 0; i < writers.length; i++) {
+                FairMerge.Input input = merge.createInput(1, Message.PRIORITY_MED);
+                writers[i] = new Thread(() -> {
+                    for(int j = 0; j < 2000; j++) {
+                        if(input.write(new Message(Message.NORMAL))) accepted.incrementAndGet();
+                    }
+                });
+                writers[i].start();
+            }
+            merge.stop();
+            for(Thread writer : writers) writer.join();
+            merge.consumer.join(10000);
+
+            // test assertions
+            Assertions.assertFalse(merge.consumer.isAlive(), "Expecting consumer stopped");
+            Assertions.assertEquals(accepted.get(), delivered.get(), "Expecting every accepted message delivered");
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+
+/**
+ * Test the FilterChain class.
+ */
+public class FilterChainTest {
+
+    private class Value {
+        public int value;
+
+        public Value(int value) {
+            this.value = value;
+        }
+    }
+
+    private ArrayList<IPipeMessage> received = new ArrayList<>();
+
+    private FilterChain chain;
+
+    // Build add(params) -> multiply(params) -> add(params) in front of a listener
+    private Filter buildFilters() {
+        PipeListener listener = new PipeListener(this, received::add);
+        Filter last = new Filter("add2", listener, (message, params) -> ((Value)message.getBody()).value += (Integer)params, 3);
+        Filter middle = new Filter("multiply", last, (message, params) -> ((Value)message.getBody()).value *= (Integer)params, 10);
+        return new Filter("add1", middle, (message, params) -> ((Value)message.getBody()).value += (Integer)params, 1);
+    }
+
+    private int send(IPipeMessage... messages) {
+        for(IPipeMessage message : messages) {
+            if(message.getKind() == Message.KIND_NORMAL) Assertions.assertTrue(chain.write(message), "Expecting wrote message");
+            else chain.write(message);
+        }
+        return ((Value)received.get(received.size() - 1).getBody()).value;
+    }
+
+    /**
+     * Test compiling a run of filters gives the same result as the filters.
+     */
+    @Test
+    public void testCompile() {
+        Filter first = buildFilters();
+        first.write(new Message(Message.NORMAL, null, new Value(1)));
+        int unfused = ((Value)received.get(0).getBody()).value;
+
+        // compile and send the same message
+        chain = FilterChain.compile(first);
+
+        // test assertions
+        Assertions.assertEquals(3, chain.getStageCount(), "Expecting 3 stages");
+        Assertions.assertEquals(23, unfused, "Expecting (1 + 1) * 10 + 3");
+        Assertions.assertEquals(unfused, send(new Message(Message.NORMAL, null, new Value(1))), "Expecting same result fused");
+    }
+
+    /**
+     * Test control messages are handled by the stage they are targeted at.
+     */
+    @Test
+    public void testControlMessagesTargetStages() {
+        chain = FilterChain.compile(buildFilters());
+
+        // test assertions
+        Assertions.assertEquals(43, send(new FilterControlMessage(FilterControlMessage.SET_PARAMS, "multiply", null, 20), new Message(Message.NORMAL, null, new Value(1))), "Expecting (1 + 1) * 20 + 3");
+        Assertions.assertEquals(5, send(new FilterControlMessage(FilterControlMessage.BYPASS, "multiply"), new Message(Message.NORMAL, null, new Value(1))), "Expecting 1 + 1 + 3");
+        Assertions.assertEquals(43, send(new FilterControlMessage(FilterControlMessage.FILTER, "multiply"), new Message(Message.NORMAL, null, new Value(1))), "Expecting multiply back on");
+        Assertions.assertEquals(63, send(new FilterControlMessage(FilterControlMessage.SET_FILTER, "add1", (message, params) -> {}), new Message(Message.NORMAL, null, new Value(3))), "Expecting 3 * 20 + 3");
+
+        // an untargeted control message is written through
+        received.clear();
+        chain.write(new FilterControlMessage(FilterControlMessage.BYPASS, "other"));
+        chain.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(2, received.size(), "Expecting untargeted control messages written through");
+    }
+
+    /**
+     * Test a filter that throws stops the message.
+     */
+    @Test
+    public void testFilterErrorStopsMessage() {
+        chain = FilterChain.compile(buildFilters());
+
+        // test assertions
+        Assertions.assertFalse(chain.write(new Message(Message.NORMAL, null, "not a value")), "Expecting write failed");
+        Assertions.assertTrue(received.isEmpty(), "Expecting nothing received");
+    }
+
+    /**
+     * Test a chain with no output fails normal messages instead of throwing.
+     */
+    @Test
+    public void testNoOutput() {
+        chain = FilterChain.compile(new Filter("alone"));
+
+        // test assertions
+        Assertions.assertFalse(chain.write(new Message(Message.NORMAL, null, new Value(1))), "Expecting write fails with no output");
+        Assertions.assertEquals(WriteOutcome.DROPPED, chain.offer(new Message(Message.NORMAL, null, new Value(1))), "Expecting DROPPED with no output");
+    }
+
+}
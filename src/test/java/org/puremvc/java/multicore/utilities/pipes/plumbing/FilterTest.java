@@ -11,10 +11,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Test the Filter class.
@@ -309,6 +311,90 @@ public class FilterTest {
         Assertions.assertSame(message2, received, "Expecting received === message2");
     }
 
+    /**
+     * Test writing a batch through a filter.
+     *
+     * <P>Writes a batch containing normal messages, a BYPASS message
+     * targeted at the filter, a control message for another filter
+     * and a message the filter function rejects. Tests that the
+     * messages after the BYPASS were not filtered, the targeted
+     * control message was consumed, the rejected message was
+     * dropped and reported, and the rest arrived in order.</P>
+     */
+    @Test
+    public void testWriteBatch() {
+        // create messages to send to the filter
+        IPipeMessage message1 = new Message(Message.NORMAL, new Rectangle(10, 2));
+        IPipeMessage message2 = new Message(Message.NORMAL, new Rectangle(-1, 2));
+        IPipeMessage bypass = new FilterControlMessage(FilterControlMessage.BYPASS, "scale");
+        IPipeMessage other = new FilterControlMessage(FilterControlMessage.BYPASS, "other");
+        IPipeMessage message3 = new Message(Message.NORMAL, new Rectangle(10, 2));
+
+        // create filter that doubles widths and rejects negative ones
+        Filter filter = new Filter("scale", new PipeListener(this, this::callBackMethod), (msg, params) -> {
+            Rectangle rectangle = (Rectangle)msg.getHeader();
+            if(rectangle.width < 0) throw new RuntimeException("negative");
+            rectangle.width *= ((Factor)params).factor;
+        }, new Factor(2));
+
+        // write the batch
+        List<IPipeMessage> batch = new ArrayList<>();
+        batch.add(message1);
+        batch.add(message2);
+        batch.add(bypass);
+        batch.add(other);
+        batch.add(message3);
+        boolean written = filter.writeBatch(batch);
+
+        // test assertions
+        Assertions.assertFalse(written, "Expecting batch reported the rejected message");
+        Assertions.assertEquals(3, messagesReceived.size(), "Expecting received 3 messages");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received1 === message1");
+        Assertions.assertSame(other, messagesReceived.remove(0), "Expecting received2 === other");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received3 === message3");
+        Assertions.assertEquals(20.0, ((Rectangle)message1.getHeader()).width, "Expecting message1 was filtered");
+        Assertions.assertEquals(10.0, ((Rectangle)message3.getHeader()).width, "Expecting message3 was bypassed");
+    }
+
+    /**
+     * Test targeting a filter by a name that is not the same String instance.
+     *
+     * <P>Sends a BYPASS message whose name is equal to, but not the
+     * same instance as, the filter's name, and tests that the filter
+     * still acts on it.</P>
+     */
+    @Test
+    public void testTargetingByEqualName() {
+        // create filter that doubles widths
+        Filter filter = new Filter("scale", new PipeListener(this, this::callBackMethod), (msg, params) -> {
+            ((Rectangle)msg.getHeader()).width *= ((Factor)params).factor;
+        }, new Factor(2));
+
+        // bypass the filter using a copy of its name
+        boolean bypassWritten = filter.write(new FilterControlMessage(FilterControlMessage.BYPASS, new String("scale")));
+        IPipeMessage message = new Message(Message.NORMAL, new Rectangle(10, 2));
+        boolean written = filter.write(message);
+
+        // test assertions
+        Assertions.assertTrue(bypassWritten, "Expecting wrote bypass message to filter");
+        Assertions.assertTrue(written, "Expecting wrote message to filter");
+        Assertions.assertEquals(1, messagesReceived.size(), "Expecting received 1 message");
+        Assertions.assertEquals(10.0, ((Rectangle)messagesReceived.remove(0).getHeader()).width, "Expecting message was bypassed");
+    }
+
+    /**
+     * Test a filter with no output fails normal messages instead of throwing.
+     */
+    @Test
+    public void testNoOutput() {
+        // create filter with no output
+        Filter filter = new Filter("none");
+
+        // test assertions
+        Assertions.assertFalse(filter.write(new Message(Message.NORMAL)), "Expecting write fails with no output");
+        Assertions.assertEquals(WriteOutcome.DROPPED, filter.offer(new Message(Message.NORMAL)), "Expecting DROPPED with no output");
+    }
+
     /**
      * Array of received messages.
      * <P>
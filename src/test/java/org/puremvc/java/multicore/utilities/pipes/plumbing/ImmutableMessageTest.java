@@ -0,0 +1,87 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Headers;
+import org.puremvc.java.multicore.utilities.pipes.messages.ImmutableMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+
+/**
+ * Test the ImmutableMessage class.
+ */
+public class ImmutableMessageTest {
+
+    private static final Headers.Key<String> SOURCE = Headers.key("source", String.class);
+
+    private static final Headers.Key<Integer> ATTEMPT = Headers.key("attempt", Integer.class);
+
+    /**
+     * Tests the with methods copy rather than modify.
+     */
+    @Test
+    public void testWithMethods() {
+        // create a message
+        ImmutableMessage message = new ImmutableMessage(Message.NORMAL, null, "body", Message.PRIORITY_LOW);
+
+        // copy it with changes
+        ImmutableMessage copy = message.withPriority(Message.PRIORITY_HIGH).withBody("other").withHeader(SOURCE, "core1");
+
+        // test assertions
+        Assertions.assertEquals(Message.KIND_NORMAL, message.getKind(), "Expecting message.getKind() == Message.KIND_NORMAL");
+        Assertions.assertEquals(Message.PRIORITY_LOW, message.getPriority(), "Expecting original priority unchanged");
+        Assertions.assertEquals("body", message.getBody(), "Expecting original body unchanged");
+        Assertions.assertNull(message.getHeader(SOURCE), "Expecting original has no source header");
+        Assertions.assertEquals(Message.PRIORITY_HIGH, copy.getPriority(), "Expecting copy.getPriority() == Message.PRIORITY_HIGH");
+        Assertions.assertEquals("other", copy.getBody(), "Expecting copy.getBody() == 'other'");
+        Assertions.assertEquals("core1", copy.getHeader(SOURCE), "Expecting copy source header");
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> message.setBody("changed"), "Expecting setter throws");
+    }
+
+    /**
+     * Tests typed headers.
+     */
+    @Test
+    public void testTypedHeaders() {
+        // create headers
+        Headers headers = Headers.EMPTY.with(SOURCE, "core1").with(ATTEMPT, 1);
+        Headers updated = headers.with(ATTEMPT, 2);
+
+        // test assertions
+        Assertions.assertEquals(2, headers.size(), "Expecting 2 headers");
+        Assertions.assertEquals("core1", headers.get(SOURCE), "Expecting source header");
+        Assertions.assertEquals(Integer.valueOf(1), headers.get(ATTEMPT), "Expecting original attempt header");
+        Assertions.assertEquals(Integer.valueOf(2), updated.get(ATTEMPT), "Expecting updated attempt header");
+        Assertions.assertEquals(2, updated.size(), "Expecting replaced, not added");
+        Assertions.assertFalse(Headers.EMPTY.has(SOURCE), "Expecting empty headers unchanged");
+    }
+
+    /**
+     * Tests a TeeSplit delivers the same instance to every branch.
+     */
+    @Test
+    public void testSharedByTeeSplit() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+        ImmutableMessage message = new ImmutableMessage(Message.NORMAL, Headers.EMPTY.with(SOURCE, "core1"));
+
+        // create splitting tee with two listeners
+        TeeSplit teeSplit = new TeeSplit(new PipeListener(this, received::add), new PipeListener(this, received::add));
+        boolean written = teeSplit.write(message);
+
+        // test assertions
+        Assertions.assertTrue(written, "Expecting wrote message to tee");
+        Assertions.assertEquals(2, received.size(), "Expecting received 2 messages");
+        Assertions.assertSame(message, received.get(0), "Expecting received1 === message");
+        Assertions.assertSame(message, received.get(1), "Expecting received2 === message");
+    }
+
+}
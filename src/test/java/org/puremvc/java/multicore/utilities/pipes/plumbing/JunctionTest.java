@@ -11,10 +11,13 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test the Junction class.
@@ -187,6 +190,96 @@ public class JunctionTest {
         Assertions.assertSame(message, messagesReceived.remove(0), "Expecting received message was same instance");
     }
 
+    /**
+     * Test sending a message waits for demand when the pipe is full.
+     * <P>
+     * Fills a bounded queue behind a TeeSplit, then sends another
+     * message on a second thread, which must wait until the queue is
+     * flushed and then be accepted.</P>
+     */
+    @Test
+    public void testSendMessageWaitsForDemand() throws InterruptedException {
+        Junction junction = new Junction();
+        Queue queue = new Queue(new PipeListener(this, message -> {}), 1);
+        junction.registerPipe("bounded", Junction.OUTPUT, new Pipe(new TeeSplit(queue)));
+
+        // fill the queue
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, junction.offerMessage("bounded", new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertEquals(WriteOutcome.FULL, junction.offerMessage("bounded", new Message(Message.NORMAL)), "Expecting queue full");
+        Assertions.assertFalse(junction.sendMessage("bounded", new Message(Message.NORMAL), 10, TimeUnit.MILLISECONDS), "Expecting timed out while full");
+
+        // send on another thread, then flush
+        boolean[] sent = {false};
+        Thread sender = new Thread(() -> {
+            try {
+                sent[0] = junction.sendMessage("bounded", new Message(Message.NORMAL), 10, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sender.start();
+        Thread.sleep(50);
+        Assertions.assertTrue(sender.isAlive(), "Expecting sender waiting for demand");
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        sender.join(5000);
+
+        // test assertions
+        Assertions.assertTrue(sent[0], "Expecting message sent after flush");
+        Assertions.assertEquals(1, queue.getSize(), "Expecting waiting message stored");
+        Assertions.assertEquals(WriteOutcome.DROPPED, junction.offerMessage("missing", new Message(Message.NORMAL)), "Expecting DROPPED for missing pipe");
+    }
+
+    /**
+     * Test a timed send to a full pipeline does not repeat side effects.
+     * <P>
+     * A TeeSplit whose second branch is full must not write the first
+     * branch, and a Filter in front of a full queue must not run, until
+     * there is room. A fitting that turns a message away after another
+     * has acted on it reports PARTIAL, and the message is not sent again.</P>
+     */
+    @Test
+    public void testSendMessageDoesNotRepeatSideEffects() throws InterruptedException {
+        Junction junction = new Junction();
+        List<IPipeMessage> branchA = new ArrayList<>();
+        int[] filtered = {0};
+
+        // create a tee whose second branch is a full queue
+        Queue branchB = new Queue(new PipeListener(this, message -> {}), 1);
+        branchB.write(new Message(Message.NORMAL));
+        junction.registerPipe("tee", Junction.OUTPUT, new Pipe(new TeeSplit(new PipeListener(this, branchA::add), branchB)));
+
+        // create a filter in front of a full queue
+        Queue filterQueue = new Queue(new PipeListener(this, message -> {}), 1);
+        filterQueue.write(new Message(Message.NORMAL));
+        junction.registerPipe("filter", Junction.OUTPUT, new Filter("count", filterQueue, (message, params) -> filtered[0]++));
+
+        // create a tee whose second branch turns messages away only when offered
+        List<IPipeMessage> partialA = new ArrayList<>();
+        junction.registerPipe("partial", Junction.OUTPUT, new TeeSplit(new PipeListener(this, partialA::add), new Pipe() {
+            public WriteOutcome offer(IPipeMessage message) {
+                return WriteOutcome.FULL;
+            }
+        }));
+
+        // test assertions
+        Assertions.assertEquals(WriteOutcome.FULL, junction.offerMessage("tee", new Message(Message.NORMAL)), "Expecting FULL from tee");
+        Assertions.assertFalse(junction.sendMessage("tee", new Message(Message.NORMAL), 20, TimeUnit.MILLISECONDS), "Expecting timed out while branch B full");
+        Assertions.assertEquals(0, branchA.size(), "Expecting branch A not written while branch B full");
+        branchB.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertTrue(junction.sendMessage("tee", new Message(Message.NORMAL), 20, TimeUnit.MILLISECONDS), "Expecting sent after flush");
+        Assertions.assertEquals(1, branchA.size(), "Expecting branch A written once");
+
+        Assertions.assertFalse(junction.sendMessage("filter", new Message(Message.NORMAL), 20, TimeUnit.MILLISECONDS), "Expecting timed out while queue full");
+        Assertions.assertEquals(0, filtered[0], "Expecting filter not run while queue full");
+        filterQueue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertTrue(junction.sendMessage("filter", new Message(Message.NORMAL), 20, TimeUnit.MILLISECONDS), "Expecting sent after flush");
+        Assertions.assertEquals(1, filtered[0], "Expecting filter run once");
+
+        Assertions.assertEquals(WriteOutcome.PARTIAL, junction.offerMessage("partial", new Message(Message.NORMAL)), "Expecting PARTIAL from tee");
+        Assertions.assertFalse(junction.sendMessage("partial", new Message(Message.NORMAL), 20, TimeUnit.MILLISECONDS), "Expecting PARTIAL not retried");
+        Assertions.assertEquals(2, partialA.size(), "Expecting each message written once to branch A");
+    }
+
     /**
      * Array of received messages.
      * <P>
@@ -0,0 +1,166 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+
+/**
+ * Test the LoadBalanceSplit class.
+ */
+public class LoadBalanceSplitTest {
+
+    /**
+     * Test round-robin spreads messages evenly and control messages go to every output.
+     */
+    @Test
+    public void testRoundRobin() {
+        ArrayList<IPipeMessage> received1 = new ArrayList<>();
+        ArrayList<IPipeMessage> received2 = new ArrayList<>();
+        ArrayList<IPipeMessage> received3 = new ArrayList<>();
+
+        // create a round-robin splitter with 3 outputs
+        LoadBalanceSplit split = new LoadBalanceSplit();
+        split.connect(new PipeListener(this, received1::add));
+        split.connect(new PipeListener(this, received2::add));
+        split.connect(new PipeListener(this, received3::add));
+        for(int i = 0; i < 9; i++) split.write(new Message(Message.NORMAL, null, i));
+
+        // test assertions
+        Assertions.assertEquals(3, received1.size(), "Expecting received1 has 3 messages");
+        Assertions.assertEquals(3, received2.size(), "Expecting received2 has 3 messages");
+        Assertions.assertEquals(3, received3.size(), "Expecting received3 has 3 messages");
+        Assertions.assertEquals(0, received1.get(0).getBody(), "Expecting first message on first output");
+        Assertions.assertEquals(1, received2.get(0).getBody(), "Expecting second message on second output");
+
+        Assertions.assertTrue(split.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting control message written");
+        Assertions.assertEquals(QueueControlMessage.FLUSH, received1.get(3).getType(), "Expecting control message written to received1");
+        Assertions.assertEquals(QueueControlMessage.FLUSH, received2.get(3).getType(), "Expecting control message written to received2");
+        Assertions.assertEquals(QueueControlMessage.FLUSH, received3.get(3).getType(), "Expecting control message written to received3");
+    }
+
+    /**
+     * Test outputs that do not accept a message are skipped.
+     */
+    @Test
+    public void testSkipsFullOutputs() {
+        // create a random splitter over two queues with room for 1 message
+        LoadBalanceSplit split = new LoadBalanceSplit(LoadBalanceSplit.random());
+        Queue queue1 = new Queue(new Pipe(), 1);
+        Queue queue2 = new Queue(new Pipe(), 1);
+        split.connect(queue1);
+        split.connect(queue2);
+
+        // test assertions
+        Assertions.assertTrue(split.write(new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertTrue(split.write(new Message(Message.NORMAL)), "Expecting second message accepted");
+        Assertions.assertEquals(1, queue1.getSize(), "Expecting queue1 has 1 message");
+        Assertions.assertEquals(1, queue2.getSize(), "Expecting queue2 has 1 message");
+        Assertions.assertEquals(WriteOutcome.FULL, split.offer(new Message(Message.NORMAL)), "Expecting FULL when every output is full");
+        Assertions.assertFalse(split.write(new Message(Message.NORMAL)), "Expecting write fails when every output is full");
+        Assertions.assertTrue(split.getSkippedCount() >= 4, "Expecting skipped outputs counted");
+        Assertions.assertFalse(new LoadBalanceSplit().write(new Message(Message.NORMAL)), "Expecting write fails with no outputs");
+    }
+
+    /**
+     * Test least loaded chooses the shortest queue.
+     */
+    @Test
+    public void testLeastLoaded() {
+        // create a least loaded splitter over three queues
+        LoadBalanceSplit split = new LoadBalanceSplit(LoadBalanceSplit.leastLoaded(LoadBalanceSplit.QUEUE_SIZE));
+        Queue queue1 = new Queue(new Pipe());
+        Queue queue2 = new Queue(new Pipe());
+        Queue queue3 = new Queue(new Pipe());
+        split.connect(queue1);
+        split.connect(queue2);
+        split.connect(queue3);
+        queue1.write(new Message(Message.NORMAL));
+        queue1.write(new Message(Message.NORMAL));
+        queue3.write(new Message(Message.NORMAL));
+
+        // test assertions
+        split.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(1, queue2.getSize(), "Expecting shortest queue chosen");
+        split.write(new Message(Message.NORMAL));
+        split.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(2, queue2.getSize(), "Expecting queue2 has 2 messages");
+        Assertions.assertEquals(2, queue3.getSize(), "Expecting queue3 has 2 messages");
+        Assertions.assertEquals(2, queue1.getSize(), "Expecting queue1 has 2 messages");
+    }
+
+    /**
+     * Test the queue size load function measures other buffering fittings.
+     */
+    @Test
+    public void testQueueSizeOfOtherFittings() {
+        // create a least loaded splitter over three concurrent queues
+        LoadBalanceSplit split = new LoadBalanceSplit(LoadBalanceSplit.leastLoaded(LoadBalanceSplit.QUEUE_SIZE));
+        ConcurrentQueue queue1 = new ConcurrentQueue(new Pipe());
+        ConcurrentQueue queue2 = new ConcurrentQueue(new Pipe());
+        ConcurrentQueue queue3 = new ConcurrentQueue(new Pipe());
+        split.connect(queue1);
+        split.connect(queue2);
+        split.connect(queue3);
+        queue1.write(new Message(Message.NORMAL));
+        queue1.write(new Message(Message.NORMAL));
+        queue3.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertEquals(2, LoadBalanceSplit.QUEUE_SIZE.applyAsInt(queue1), "Expecting queue1 load is 2");
+        Assertions.assertEquals(1, LoadBalanceSplit.QUEUE_SIZE.applyAsInt(queue3), "Expecting queue3 load is 1");
+        split.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(1, queue2.getSize(), "Expecting shortest queue chosen");
+        Assertions.assertEquals(0, LoadBalanceSplit.QUEUE_SIZE.applyAsInt(new AsyncPipe()), "Expecting no load for an empty AsyncPipe");
+        Assertions.assertEquals(0, LoadBalanceSplit.QUEUE_SIZE.applyAsInt(new Pipe()), "Expecting no load for a Pipe");
+    }
+
+    /**
+     * Test a strategy returning a negative index does not fail the write.
+     */
+    @Test
+    public void testNegativeStrategyIndex() {
+        ArrayList<IPipeMessage> received1 = new ArrayList<>();
+        ArrayList<IPipeMessage> received2 = new ArrayList<>();
+
+        // create a splitter whose strategy always returns -1
+        LoadBalanceSplit split = new LoadBalanceSplit(outputs -> -1);
+        split.connect(new PipeListener(this, received1::add));
+        split.connect(new PipeListener(this, received2::add));
+
+        // test assertions
+        Assertions.assertTrue(split.write(new Message(Message.NORMAL)), "Expecting message written");
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, split.offer(new Message(Message.NORMAL)), "Expecting message offered");
+        Assertions.assertEquals(0, received1.size(), "Expecting received1 has no messages");
+        Assertions.assertEquals(2, received2.size(), "Expecting -1 chooses the last output");
+    }
+
+    /**
+     * Test disconnectFitting skips a null output.
+     */
+    @Test
+    public void testDisconnectFittingWithNullOutput() {
+        // create a LoadBalanceSplit with a null output before a pipe
+        LoadBalanceSplit split = new LoadBalanceSplit();
+        Pipe pipe = new Pipe();
+        split.connect(null);
+        split.connect(pipe);
+
+        // test assertions
+        Assertions.assertSame(pipe, split.disconnectFitting(pipe), "Expecting split.disconnectFitting(pipe) === pipe");
+        Assertions.assertNull(split.disconnectFitting(pipe), "Expecting pipe no longer connected");
+        Assertions.assertNull(split.disconnect(), "Expecting the null output left");
+        Assertions.assertNull(split.disconnect(), "Expecting no outputs left");
+    }
+}
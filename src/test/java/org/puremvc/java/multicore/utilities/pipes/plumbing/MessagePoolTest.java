@@ -0,0 +1,142 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.MessagePool;
+import org.puremvc.java.multicore.utilities.pipes.messages.PooledMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test the MessagePool class.
+ */
+public class MessagePoolTest {
+
+    /**
+     * Test acquiring, releasing and reacquiring a message.
+     */
+    @Test
+    public void testAcquireAndRelease() {
+        MessagePool pool = new MessagePool();
+
+        // acquire a message
+        PooledMessage message = pool.acquire(Message.NORMAL, "header", "body", Message.PRIORITY_HIGH);
+
+        // test assertions
+        Assertions.assertEquals(Message.NORMAL, message.getType(), "Expecting message.getType() == Message.NORMAL");
+        Assertions.assertEquals(Message.KIND_NORMAL, message.getKind(), "Expecting message.getKind() == Message.KIND_NORMAL");
+        Assertions.assertEquals("header", message.getHeader(), "Expecting message.getHeader() == 'header'");
+        Assertions.assertEquals("body", message.getBody(), "Expecting message.getBody() == 'body'");
+        Assertions.assertEquals(Message.PRIORITY_HIGH, message.getPriority(), "Expecting message.getPriority() == Message.PRIORITY_HIGH");
+
+        // release it and test the fields were cleared
+        message.release();
+        Assertions.assertTrue(message.isReleased(), "Expecting message is released");
+        Assertions.assertNull(message.getBody(), "Expecting released message body cleared");
+
+        // acquire again and test the instance was recycled
+        PooledMessage again = pool.acquire(Message.NORMAL);
+        Assertions.assertSame(message, again, "Expecting recycled message");
+        Assertions.assertFalse(again.isReleased(), "Expecting message is live again");
+        Assertions.assertNull(again.getHeader(), "Expecting header reset");
+        Assertions.assertEquals(Message.PRIORITY_MED, again.getPriority(), "Expecting priority reset");
+    }
+
+    /**
+     * Test debug mode detects use after release and double release.
+     */
+    @Test
+    public void testDebugDetectsUseAfterRelease() {
+        MessagePool pool = new MessagePool(true);
+
+        PooledMessage message = pool.acquire(Message.NORMAL, "header");
+        message.release();
+
+        // test assertions
+        Assertions.assertThrows(IllegalStateException.class, message::getHeader, "Expecting use after release throws");
+        Assertions.assertThrows(IllegalStateException.class, message::release, "Expecting double release throws");
+        Assertions.assertNotSame(message, pool.acquire(Message.NORMAL), "Expecting released message not handed out in debug mode");
+    }
+
+    /**
+     * Test a PipeListener releasing messages after delivery.
+     */
+    @Test
+    public void testPipeListenerReleasesAfterDelivery() {
+        MessagePool pool = new MessagePool();
+        ArrayList<Object> bodies = new ArrayList<>();
+
+        // create pipe and a releasing listener
+        Pipe pipe = new Pipe();
+        PipeListener listener = new PipeListener(this, message -> bodies.add(message.getBody()));
+        listener.setReleaseAfterDelivery(true);
+        pipe.connect(listener);
+
+        // send a message
+        PooledMessage message = pool.acquire(Message.NORMAL, null, "body");
+        boolean written = pipe.write(message);
+
+        // test assertions
+        Assertions.assertTrue(written, "Expecting wrote message to pipe");
+        Assertions.assertEquals("body", bodies.get(0), "Expecting listener saw the body");
+        Assertions.assertTrue(message.isReleased(), "Expecting message released after delivery");
+    }
+
+    /**
+     * Test that concurrent threads never hold the same message.
+     * <P>
+     * Several threads acquire and release messages, releasing some
+     * on a different thread than acquired them. Tests that no
+     * message is ever held by two threads at once.</P>
+     */
+    @Test
+    public void testConcurrentAcquireAndRelease() throws InterruptedException {
+        MessagePool pool = new MessagePool(4, 16, false);
+        Set<IPipeMessage> held = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicBoolean duplicate = new AtomicBoolean(false);
+        ArrayList<PooledMessage> handoff = new ArrayList<>();
+
+        ArrayList<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for(int i = 0; i < 20000; i++) {
+                    PooledMessage message = pool.acquire(Message.NORMAL, i);
+                    if(!held.add(message)) duplicate.set(true);
+                    PooledMessage other = null;
+                    synchronized (handoff) {
+                        if(i % 2 == 0) handoff.add(message);
+                        else if(!handoff.isEmpty()) other = handoff.remove(handoff.size() - 1);
+                    }
+                    if(i % 2 != 0) {
+                        held.remove(message);
+                        message.release();
+                    }
+                    if(other != null) {
+                        held.remove(other);
+                        other.release();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for(Thread thread : threads) thread.join();
+
+        // test assertions
+        Assertions.assertFalse(duplicate.get(), "Expecting no message held twice");
+    }
+
+}
@@ -10,7 +10,10 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.MessageKind;
+import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
@@ -79,4 +82,33 @@ public class MessageTest {
         Assertions.assertEquals("Hello", ((Document)message.getBody()).getDocumentElement().getAttribute("testAtt"), "Expecting ((Document)messageReceived.getBody()).getDocumentElement().getAttribute('testAtt') == 'Hello' ");
         Assertions.assertEquals(Message.PRIORITY_LOW, message.getPriority(), "Expecing message.getPriority() == Message.PRIORITY_HIGH");
     }
+
+    /**
+     * Tests the message kind follows the type.
+     */
+    @Test
+    public void testKind() {
+        // create messages, one with a type string that is not the interned constant
+        IPipeMessage message = new Message(new String(Message.NORMAL));
+        IPipeMessage flush = new QueueControlMessage(QueueControlMessage.FLUSH);
+        IPipeMessage bypass = new FilterControlMessage(FilterControlMessage.BYPASS, "filter");
+
+        // test assertions
+        Assertions.assertEquals(Message.KIND_NORMAL, message.getKind(), "Expecting message.getKind() == Message.KIND_NORMAL");
+        Assertions.assertEquals(QueueControlMessage.KIND_FLUSH, flush.getKind(), "Expecting flush.getKind() == QueueControlMessage.KIND_FLUSH");
+        Assertions.assertEquals(FilterControlMessage.KIND_BYPASS, bypass.getKind(), "Expecting bypass.getKind() == FilterControlMessage.KIND_BYPASS");
+
+        // change the type and test the kind follows
+        message.setType("custom");
+        Assertions.assertEquals(Message.KIND_OTHER, message.getKind(), "Expecting message.getKind() == Message.KIND_OTHER");
+
+        // test every type constant has its own kind
+        String[] types = {Message.NORMAL, FilterControlMessage.SET_PARAMS, FilterControlMessage.SET_FILTER, FilterControlMessage.BYPASS,
+            FilterControlMessage.FILTER, QueueControlMessage.FLUSH, QueueControlMessage.SORT, QueueControlMessage.FIFO};
+        int[] kinds = {Message.KIND_NORMAL, FilterControlMessage.KIND_SET_PARAMS, FilterControlMessage.KIND_SET_FILTER, FilterControlMessage.KIND_BYPASS,
+            FilterControlMessage.KIND_FILTER, QueueControlMessage.KIND_FLUSH, QueueControlMessage.KIND_SORT, QueueControlMessage.KIND_FIFO};
+        for(int i = 0; i < types.length; i++) {
+            Assertions.assertEquals(kinds[i], MessageKind.of(types[i]), "Expecting MessageKind.of(" + types[i] + ") == " + kinds[i]);
+        }
+    }
 }
@@ -0,0 +1,181 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.TelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.TelemetryMessageCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the OffHeapQueue class.
+ */
+public class OffHeapQueueTest {
+
+    private TelemetryMessage sample(long timestamp, int priority) {
+        TelemetryMessage sample = TelemetryMessage.withCapacity(timestamp, 1, 1);
+        sample.setDouble(0, timestamp / 2.0);
+        sample.setLong(0, timestamp * 2);
+        sample.setPriority(priority);
+        return sample;
+    }
+
+    /**
+     * Test messages are rebuilt on flush with their values.
+     */
+    @Test
+    public void testStoreAndFlush() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // create queue and send messages
+        OffHeapQueue queue = new OffHeapQueue(new PipeListener(this, received::add), new TelemetryMessageCodec(), 4096);
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(sample(1L, Message.PRIORITY_LOW));
+        queue.write(sample(2L, Message.PRIORITY_HIGH));
+
+        // test assertions
+        Assertions.assertEquals(2, queue.getSize(), "Expecting 2 messages stored");
+        Assertions.assertTrue(received.isEmpty(), "Expecting nothing received before flush");
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flushed");
+        Assertions.assertEquals(2, received.size(), "Expecting received 2 messages");
+        ITelemetryMessage first = (ITelemetryMessage)received.get(0);
+        Assertions.assertEquals(1L, first.getTimestamp(), "Expecting first.getTimestamp() == 1");
+        Assertions.assertEquals(0.5, first.getDouble(0), "Expecting first.getDouble(0) == 0.5");
+        Assertions.assertEquals(2L, first.getLong(0), "Expecting first.getLong(0) == 2");
+        Assertions.assertEquals(Message.PRIORITY_LOW, first.getPriority(), "Expecting first.getPriority() == Message.PRIORITY_LOW");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue empty");
+        Assertions.assertEquals(0L, queue.getUsedBytes(), "Expecting buffer empty");
+    }
+
+    /**
+     * Test the same ordering as Queue for messages stored in SORT and then FIFO mode.
+     */
+    @Test
+    public void testSortThenFifo() {
+        ArrayList<Long> received = new ArrayList<>();
+
+        // create queue, sorting by default
+        OffHeapQueue queue = new OffHeapQueue(new PipeListener(this, message -> received.add(((ITelemetryMessage)message).getTimestamp())), new TelemetryMessageCodec(), 4096);
+        queue.write(sample(1L, Message.PRIORITY_LOW));
+        queue.write(sample(2L, Message.PRIORITY_MED));
+        queue.write(sample(3L, Message.PRIORITY_HIGH));
+        queue.write(sample(4L, Message.PRIORITY_MED));
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(sample(5L, Message.PRIORITY_HIGH));
+        queue.write(sample(6L, Message.PRIORITY_LOW));
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertArrayEquals(new Long[]{3L, 2L, 4L, 1L, 5L, 6L}, received.toArray(new Long[0]), "Expecting sorted then fifo order");
+    }
+
+    /**
+     * Test a full buffer rejects messages and records wrap around its end.
+     */
+    @Test
+    public void testFullAndWrapAround() {
+        ArrayList<Long> received = new ArrayList<>();
+
+        // create a queue holding a few records
+        OffHeapQueue queue = new OffHeapQueue(new PipeListener(this, message -> received.add(((ITelemetryMessage)message).getTimestamp())), new TelemetryMessageCodec(), 150);
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+
+        int stored = 0;
+        while(queue.write(sample(stored, Message.PRIORITY_MED))) stored++;
+        Assertions.assertTrue(stored > 0, "Expecting some messages stored");
+        Assertions.assertEquals(stored, queue.getSize(), "Expecting rejected message not stored");
+
+        // store and flush repeatedly so records straddle the end of the buffer
+        long timestamp = 0;
+        received.clear();
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        for(int round = 0; round < 20; round++) {
+            for(int i = 0; i < 2; i++) Assertions.assertTrue(queue.write(sample(1000 + timestamp++, Message.PRIORITY_MED)), "Expecting room");
+            queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        }
+
+        // test assertions
+        Assertions.assertEquals(stored + 40, received.size(), "Expecting all stored messages received");
+        for(int i = 0; i < 40; i++) Assertions.assertEquals(1000L + i, (long)received.get(stored + i), "Expecting messages in order");
+    }
+
+    /**
+     * Test messages are stored while a flush is writing to the output.
+     */
+    @Test
+    public void testStoreDuringFlush() throws InterruptedException {
+        ArrayList<Long> received = new ArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // create a queue whose output holds the first flush
+        OffHeapQueue queue = new OffHeapQueue(new PipeListener(this, message -> {
+            if(entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.add(((ITelemetryMessage)message).getTimestamp());
+        }), new TelemetryMessageCodec(), 4096);
+        queue.write(sample(1L, Message.PRIORITY_MED));
+        Thread flusher = new Thread(() -> queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)));
+        flusher.start();
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS), "Expecting flush writing");
+
+        // store while the output is held
+        Assertions.assertTrue(queue.write(sample(2L, Message.PRIORITY_MED)), "Expecting message stored during flush");
+        Assertions.assertEquals(1, queue.getSize(), "Expecting flushed message taken out");
+        release.countDown();
+        flusher.join(5000);
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertArrayEquals(new Long[]{1L, 2L}, received.toArray(new Long[0]), "Expecting each message received once");
+    }
+
+    /**
+     * Test a flush whose output throws does not write the messages again.
+     */
+    @Test
+    public void testFailedFlushNotRepeated() {
+        List<Long> received = new ArrayList<>();
+        boolean[] fail = {true};
+
+        // create a queue whose output throws once
+        OffHeapQueue queue = new OffHeapQueue(new PipeListener(this, message -> {
+            received.add(((ITelemetryMessage)message).getTimestamp());
+            if(fail[0]) throw new IllegalStateException("output failed");
+        }), new TelemetryMessageCodec(), 4096);
+        queue.write(sample(1L, Message.PRIORITY_LOW));
+        queue.write(sample(2L, Message.PRIORITY_HIGH));
+        Assertions.assertThrows(IllegalStateException.class, () -> queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)));
+
+        // flush again with a working output
+        fail[0] = false;
+        queue.write(sample(3L, Message.PRIORITY_MED));
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertArrayEquals(new Long[]{2L, 3L}, received.toArray(new Long[0]), "Expecting failed batch not written again");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue empty");
+        Assertions.assertEquals(0L, queue.getUsedBytes(), "Expecting buffer empty");
+    }
+
+}
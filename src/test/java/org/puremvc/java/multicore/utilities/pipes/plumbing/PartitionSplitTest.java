@@ -0,0 +1,122 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Test the PartitionSplit class.
+ */
+public class PartitionSplitTest {
+
+    private static final int KEYS = 10000;
+
+    private IPipeFitting[] assign(PartitionSplit split) {
+        IPipeFitting[] owners = new IPipeFitting[KEYS];
+        for(int key = 0; key < KEYS; key++) owners[key] = split.partitionFor("key" + key);
+        return owners;
+    }
+
+    /**
+     * Test messages with the same key go to the same output, and control messages to every output.
+     */
+    @Test
+    public void testSameKeySameOutput() {
+        ArrayList<ArrayList<IPipeMessage>> received = new ArrayList<>();
+        HashMap<String, Integer> outputForKey = new HashMap<>();
+
+        // create a splitter by header with 3 outputs
+        PartitionSplit split = new PartitionSplit(IPipeMessage::getHeader);
+        for(int i = 0; i < 3; i++) {
+            ArrayList<IPipeMessage> output = new ArrayList<>();
+            received.add(output);
+            split.connect(new PipeListener(this, output::add));
+        }
+        for(int i = 0; i < 100; i++) split.write(new Message(Message.NORMAL, "key" + (i % 10), i));
+
+        // test assertions
+        int total = 0;
+        for(int i = 0; i < received.size(); i++) {
+            total += received.get(i).size();
+            for(IPipeMessage message : received.get(i)) {
+                Integer previous = outputForKey.put((String)message.getHeader(), i);
+                Assertions.assertTrue(previous == null || previous == i, "Expecting each key on one output");
+            }
+        }
+        Assertions.assertEquals(100, total, "Expecting each message written once");
+
+        // write a control message
+        Assertions.assertTrue(split.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting control message written");
+        for(ArrayList<IPipeMessage> output : received) {
+            Assertions.assertEquals(QueueControlMessage.FLUSH, output.get(output.size() - 1).getType(), "Expecting control message written to every output");
+        }
+    }
+
+    /**
+     * Test only about 1/N of the keys move when outputs are connected and disconnected.
+     */
+    @Test
+    public void testMinimalRebalancing() {
+        PartitionSplit split = new PartitionSplit(IPipeMessage::getHeader);
+        ArrayList<IPipeFitting> outputs = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            IPipeFitting output = new Pipe();
+            outputs.add(output);
+            split.connect(output);
+        }
+        IPipeFitting[] before = assign(split);
+
+        // connect a sixth output
+        IPipeFitting added = new Pipe();
+        split.connect(added);
+        IPipeFitting[] after = assign(split);
+        int moved = 0;
+        for(int key = 0; key < KEYS; key++) {
+            if(before[key] != after[key]) {
+                moved++;
+                Assertions.assertSame(added, after[key], "Expecting keys only move to the new output");
+            }
+        }
+        Assertions.assertTrue(moved > KEYS / 12 && moved < KEYS / 3, "Expecting about 1/6 of keys moved, was " + moved);
+
+        // disconnect one of the original outputs
+        IPipeFitting removed = outputs.get(2);
+        Assertions.assertSame(removed, split.disconnectFitting(removed), "Expecting disconnected output returned");
+        IPipeFitting[] last = assign(split);
+        for(int key = 0; key < KEYS; key++) {
+            if(after[key] != removed) Assertions.assertSame(after[key], last[key], "Expecting keys of other outputs stay");
+            else Assertions.assertNotSame(removed, last[key], "Expecting keys of removed output move");
+        }
+    }
+
+    /**
+     * Test disconnectFitting skips a null output.
+     */
+    @Test
+    public void testDisconnectFittingWithNullOutput() {
+        // create a PartitionSplit with a null output before a pipe
+        PartitionSplit split = new PartitionSplit(IPipeMessage::getHeader);
+        Pipe pipe = new Pipe();
+        split.connect(null);
+        split.connect(pipe);
+
+        // test assertions
+        Assertions.assertSame(pipe, split.disconnectFitting(pipe), "Expecting split.disconnectFitting(pipe) === pipe");
+        Assertions.assertNull(split.disconnectFitting(pipe), "Expecting pipe no longer connected");
+        Assertions.assertNull(split.disconnect(), "Expecting the null output left");
+        Assertions.assertNull(split.disconnect(), "Expecting no outputs left");
+    }
+}
@@ -0,0 +1,257 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IMessageCodec;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.TelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.TelemetryMessageCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Test the PersistentQueue class.
+ */
+public class PersistentQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TelemetryMessage sample(long timestamp, int priority) {
+        TelemetryMessage sample = new TelemetryMessage(timestamp, timestamp / 2.0);
+        sample.setPriority(priority);
+        return sample;
+    }
+
+    private PersistentQueue open(File directory, ArrayList<Long> received) throws IOException {
+        PipeListener listener = new PipeListener(this, message -> received.add(((ITelemetryMessage)message).getTimestamp()));
+        return new PersistentQueue(listener, directory, new TelemetryMessageCodec(), 128, 4);
+    }
+
+    private int countSegments(File directory) {
+        return directory.listFiles((dir, name) -> name.endsWith(PersistentQueue.SEGMENT_SUFFIX)).length;
+    }
+
+    /**
+     * Test messages written across several segments are flushed and the segments reclaimed.
+     */
+    @Test
+    public void testStoreFlushAndReclaim() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+
+        // create queue and send more messages than fit in one segment
+        PersistentQueue queue = open(directory, received);
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        for(long i = 0; i < 10; i++) Assertions.assertTrue(queue.write(sample(i, Message.PRIORITY_MED)), "Expecting stored");
+
+        // test assertions
+        Assertions.assertEquals(10, queue.getSize(), "Expecting 10 messages stored");
+        Assertions.assertTrue(countSegments(directory) > 1, "Expecting several segments");
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flushed");
+        Assertions.assertEquals(10, received.size(), "Expecting received 10 messages");
+        for(int i = 0; i < 10; i++) Assertions.assertEquals(i, (long)received.get(i), "Expecting messages in order");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue empty");
+        Assertions.assertTrue(countSegments(directory) <= 1, "Expecting flushed segments reclaimed");
+        queue.close();
+    }
+
+    /**
+     * Test unflushed messages are replayed by a new queue on the same directory.
+     */
+    @Test
+    public void testReplayAfterRestart() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+
+        // store, flush some, then store more in sort and fifo modes
+        PersistentQueue queue = open(directory, received);
+        queue.write(sample(1L, Message.PRIORITY_MED));
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        queue.write(sample(2L, Message.PRIORITY_LOW));
+        queue.write(sample(3L, Message.PRIORITY_HIGH));
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(sample(4L, Message.PRIORITY_HIGH));
+        queue.write(sample(5L, Message.PRIORITY_LOW));
+
+        // abandon the queue without closing it and reopen the directory
+        received.clear();
+        PersistentQueue reopened = open(directory, received);
+        Assertions.assertEquals(4, reopened.getSize(), "Expecting 4 unflushed messages recovered");
+        reopened.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertArrayEquals(new Long[]{3L, 2L, 4L, 5L}, received.toArray(new Long[0]), "Expecting stored order restored");
+        Assertions.assertEquals(0, open(directory, new ArrayList<>()).getSize(), "Expecting nothing to replay after flush");
+        reopened.close();
+    }
+
+    /**
+     * Test writeBatch stores every message of the batch.
+     */
+    @Test
+    public void testWriteBatch() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+        PersistentQueue queue = open(directory, received);
+
+        // write a batch with a trailing flush
+        ArrayList<IPipeMessage> batch = new ArrayList<>();
+        batch.add(new QueueControlMessage(QueueControlMessage.FIFO));
+        for(long i = 0; i < 6; i++) batch.add(sample(i, Message.PRIORITY_MED));
+        batch.add(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertTrue(queue.writeBatch(batch), "Expecting wrote batch");
+        Assertions.assertEquals(6, received.size(), "Expecting received 6 messages");
+        queue.close();
+    }
+
+    /**
+     * Test a corrupt record ends recovery and is overwritten by later appends.
+     */
+    @Test
+    public void testRecoveryStopsAtCorruptRecord() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+
+        // store three messages and corrupt the last
+        PersistentQueue queue = open(directory, received);
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(sample(1L, Message.PRIORITY_MED));
+        queue.write(sample(2L, Message.PRIORITY_MED));
+        long before = queue.tail;
+        queue.write(sample(3L, Message.PRIORITY_MED));
+        queue.sync();
+        long position = queue.locate(before);
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, queue.name(queue.index(position))), "rw")) {
+            file.seek(queue.offset(position) + PersistentQueue.RECORD_HEADER);
+            int value = file.read();
+            file.seek(queue.offset(position) + PersistentQueue.RECORD_HEADER);
+            file.write(value ^ 0xff);
+        }
+
+        // reopen, append, and reopen again
+        PersistentQueue reopened = open(directory, received);
+        Assertions.assertEquals(2, reopened.getSize(), "Expecting corrupt record not recovered");
+        reopened.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        reopened.write(sample(4L, Message.PRIORITY_MED));
+        reopened.sync();
+        PersistentQueue recovered = open(directory, received);
+
+        // test assertions
+        Assertions.assertEquals(3, recovered.getSize(), "Expecting records after the appended one cleared");
+        recovered.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertArrayEquals(new Long[]{1L, 2L, 4L}, received.toArray(new Long[0]), "Expecting corrupt record skipped");
+        recovered.close();
+    }
+
+    /**
+     * Test messages with an empty encoding are stored and recovered.
+     */
+    @Test
+    public void testEmptyPayload() throws IOException {
+        File directory = tempDir.toFile();
+        IMessageCodec codec = new IMessageCodec() {
+            public void encode(IPipeMessage message, ByteBuffer buffer) {
+            }
+
+            public IPipeMessage decode(ByteBuffer buffer) {
+                return new Message(Message.NORMAL);
+            }
+        };
+
+        // store messages that encode to nothing, then reopen
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+        PersistentQueue queue = new PersistentQueue(new PipeListener(this, received::add), directory, codec, 128, 1);
+        queue.write(new Message(Message.NORMAL));
+        queue.write(new Message(Message.NORMAL));
+        PersistentQueue reopened = new PersistentQueue(new PipeListener(this, received::add), directory, codec, 128, 1);
+
+        // test assertions
+        Assertions.assertEquals(2, reopened.getSize(), "Expecting empty records recovered");
+        reopened.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(2, received.size(), "Expecting received 2 messages");
+        reopened.close();
+    }
+
+    /**
+     * Test a batch the output fails is kept for the next flush.
+     */
+    @Test
+    public void testFailedDeliveryKept() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+        boolean[] failing = {true};
+
+        // create queue with an output that throws until told otherwise
+        PersistentQueue queue = new PersistentQueue(new Pipe() {
+            public boolean write(IPipeMessage message) {
+                if(failing[0]) throw new IllegalStateException("output down");
+                received.add(((ITelemetryMessage)message).getTimestamp());
+                return true;
+            }
+        }, directory, new TelemetryMessageCodec(), 128, 4);
+        queue.write(sample(1L, Message.PRIORITY_LOW));
+        queue.write(sample(2L, Message.PRIORITY_HIGH));
+
+        // test assertions
+        Assertions.assertThrows(IllegalStateException.class, () -> queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flush failed");
+        Assertions.assertEquals(2, queue.getSize(), "Expecting failed messages kept");
+        failing[0] = false;
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flushed");
+        Assertions.assertArrayEquals(new Long[]{2L, 1L}, received.toArray(new Long[0]), "Expecting kept messages delivered");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue empty");
+        queue.close();
+    }
+
+    /**
+     * Test a batch the output reports failed is not written again.
+     */
+    @Test
+    public void testFailedBatchNotRepeated() throws IOException {
+        File directory = tempDir.toFile();
+        ArrayList<Long> received = new ArrayList<>();
+
+        // create queue writing to a filter that throws on every even timestamp
+        PipeListener listener = new PipeListener(this, message -> received.add(((ITelemetryMessage)message).getTimestamp()));
+        Filter filter = new Filter("even", listener, (message, params) -> {
+            if(((ITelemetryMessage)message).getTimestamp() % 2 == 0) throw new IllegalArgumentException("even");
+        }, null);
+        PersistentQueue queue = new PersistentQueue(filter, directory, new TelemetryMessageCodec(), 128, 4);
+        for(long i = 1; i <= 3; i++) queue.write(sample(i, Message.PRIORITY_MED));
+
+        // test assertions in SORT mode
+        Assertions.assertFalse(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flush reports the failure");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue drained");
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting nothing left to flush");
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting nothing left to flush");
+        Assertions.assertArrayEquals(new Long[]{1L, 3L}, received.toArray(new Long[0]), "Expecting good messages delivered once");
+
+        // test assertions in FIFO mode
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        for(long i = 4; i <= 6; i++) queue.write(sample(i, Message.PRIORITY_MED));
+        Assertions.assertFalse(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting flush reports the failure");
+        Assertions.assertTrue(queue.write(new QueueControlMessage(QueueControlMessage.FLUSH)), "Expecting nothing left to flush");
+        Assertions.assertArrayEquals(new Long[]{1L, 3L, 5L}, received.toArray(new Long[0]), "Expecting good messages delivered once");
+        Assertions.assertEquals(0, queue.getSize(), "Expecting queue drained");
+        queue.close();
+    }
+
+}
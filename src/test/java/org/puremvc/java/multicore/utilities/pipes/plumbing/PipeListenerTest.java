@@ -17,6 +17,13 @@ import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test the PipeListener class.
@@ -76,6 +83,84 @@ public class PipeListenerTest {
         Assertions.assertTrue(messageReceived.getPriority() == Message.PRIORITY_HIGH, "Expecting messageReceived.getPriority() == Message.PRIORITY_HIGH");
     }
 
+    /**
+     * Test receiving messages on an executor.
+     * <P>
+     * Creates a PipeListener that delivers on a thread-per-task
+     * executor, writes messages to it, and tests that they were all
+     * received off the writing thread and in the order written.</P>
+     */
+    @Test
+    public void testReceiveMessagesOnExecutor() throws Exception {
+        final int count = 500;
+        List<IPipeMessage> received = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        Thread writer = Thread.currentThread();
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        // create pipe and a listener delivering on the executor
+        IPipeFitting pipe = new Pipe();
+        pipe.connect(new PipeListener(this, message -> {
+            if(Thread.currentThread() != writer) received.add(message);
+            latch.countDown();
+        }, executor));
+
+        // write the messages
+        List<IPipeMessage> sent = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            IPipeMessage message = new Message(Message.NORMAL, new Prop("value" + i));
+            Assertions.assertTrue(pipe.write(message), "Expecting wrote message to pipe");
+            sent.add(message);
+        }
+
+        // test assertions
+        Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS), "Expecting all messages delivered");
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Expecting executor terminated");
+        Assertions.assertEquals(sent, received, "Expecting messages received off the writer thread, in order");
+    }
+
+    /**
+     * Test a rejected or bounded executor does not strand messages.
+     * <P>
+     * Uses an executor that queues tasks to be run by the test and
+     * can be told to reject them. Tests that writes beyond the bound
+     * fail, and that a task rejected when the previous one finished
+     * is scheduled by the next write.</P>
+     */
+    @Test
+    public void testRejectedAndBoundedExecutor() {
+        List<Object> received = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        boolean[] rejecting = {false};
+
+        // create a listener on a manual executor with room for 2 pending deliveries
+        PipeListener listener = new PipeListener(this, message -> received.add(message.getBody()), task -> {
+            if(rejecting[0]) throw new RejectedExecutionException("Rejecting");
+            tasks.add(task);
+        }, 2);
+
+        // test assertions
+        Assertions.assertTrue(listener.write(new Message(Message.NORMAL, null, 1)), "Expecting message 1 accepted");
+        Assertions.assertTrue(listener.write(new Message(Message.NORMAL, null, 2)), "Expecting message 2 accepted");
+        Assertions.assertTrue(listener.write(new Message(Message.NORMAL, null, 3)), "Expecting message 3 accepted");
+        Assertions.assertFalse(listener.write(new Message(Message.NORMAL, null, 4)), "Expecting message 4 over the bound");
+        Assertions.assertEquals(2, listener.getPendingCount(), "Expecting 2 pending deliveries");
+
+        // reject the next task when the first finishes
+        rejecting[0] = true;
+        tasks.remove(0).run();
+        Assertions.assertFalse(listener.write(new Message(Message.NORMAL, null, 5)), "Expecting rejected write fails");
+        Assertions.assertEquals(2, listener.getPendingCount(), "Expecting rejected task kept pending");
+
+        // the next write schedules the kept task
+        rejecting[0] = false;
+        Assertions.assertTrue(listener.write(new Message(Message.NORMAL, null, 6)), "Expecting message 6 accepted");
+        while(!tasks.isEmpty()) tasks.remove(0).run();
+        Assertions.assertArrayEquals(new Object[]{1, 2, 3, 6}, received.toArray(), "Expecting accepted messages delivered in order");
+        Assertions.assertEquals(0, listener.getPendingCount(), "Expecting nothing pending");
+    }
+
     /**
      * Recipient of message.
      * <P>
@@ -10,6 +10,14 @@ package org.puremvc.java.multicore.utilities.pipes.plumbing;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Test the Pipe class.
@@ -67,4 +75,49 @@ public class PipeTest {
         Assertions.assertFalse(pipe1.connect(pipe3), "expecting can't connect pipe3 to pipe1");
     }
 
+    /**
+     * Test a demand listener added before an output is connected reaches it.
+     */
+    @Test
+    public void testDemandListenerReachesLaterOutput() {
+        int[] signals = {0};
+
+        // add a listener, then connect a full queue
+        Pipe pipe = new Pipe();
+        pipe.addDemandListener(() -> signals[0]++);
+        Queue queue = new Queue(new PipeListener(this, message -> {}), 1);
+        pipe.connect(queue);
+        pipe.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertFalse(pipe.hasRoom(new Message(Message.NORMAL)), "Expecting no room in full queue");
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(1, signals[0], "Expecting listener told after flush");
+        Assertions.assertTrue(pipe.hasRoom(new Message(Message.NORMAL)), "Expecting room after flush");
+    }
+
+    /**
+     * Test a subclass overriding only write has it called for batches and offers.
+     */
+    @Test
+    public void testSubclassWriteUsedForBatchAndOffer() {
+        List<IPipeMessage> received = new ArrayList<>();
+        int[] writes = {0};
+
+        // create a pipe subclass counting its writes, in front of a listener
+        Pipe counting = new Pipe(new PipeListener(this, received::add)) {
+            public boolean write(IPipeMessage message) {
+                writes[0]++;
+                return super.write(message);
+            }
+        };
+        counting.writeBatch(Arrays.asList(new Message(Message.NORMAL), new Message(Message.NORMAL)));
+        WriteOutcome outcome = counting.offer(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertEquals(3, writes[0], "Expecting write called for each message");
+        Assertions.assertEquals(3, received.size(), "Expecting all messages received");
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, outcome, "Expecting offer accepted");
+    }
+
 }
@@ -11,10 +11,16 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeFitting;
 import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
 import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test the Queue class.
@@ -211,6 +217,393 @@ public class QueueTest {
         Assertions.assertEquals(Message.PRIORITY_HIGH, received3Again.getPriority(), "Expecting received3Again is priority high");
     }
 
+    /**
+     * Test that Sort-by-Priority mode is stable.
+     * <P>
+     * Writes messages of equal priority interleaved with others in
+     * SORT mode, flushes, and tests that messages of equal priority
+     * are received in the order they were sent.</P>
+     * <P>
+     * Then writes messages in FIFO mode followed by one in SORT mode,
+     * and tests that all of them are sorted on the next FLUSH.</P>
+     */
+    @Test
+    public void testSortByPriorityIsStable() {
+        // create messages to send to the queue
+        IPipeMessage message1 = new Message(Message.NORMAL, new Prop(1), null, Message.PRIORITY_LOW);
+        IPipeMessage message2 = new Message(Message.NORMAL, new Prop(2), null, Message.PRIORITY_HIGH);
+        IPipeMessage message3 = new Message(Message.NORMAL, new Prop(3), null, Message.PRIORITY_LOW);
+        IPipeMessage message4 = new Message(Message.NORMAL, new Prop(4), null, Message.PRIORITY_HIGH);
+
+        // create queue, attaching an anonymous listener to its output
+        Queue queue = new Queue(new PipeListener(this, this::callBackMethod));
+
+        // write messages to the queue in sort mode and flush
+        queue.write(new QueueControlMessage(QueueControlMessage.SORT));
+        queue.write(message1);
+        queue.write(message2);
+        queue.write(message3);
+        queue.write(message4);
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test that messages are sorted, equal priorities in FIFO order
+        Assertions.assertEquals(4, messagesReceived.size(), "Expecting received 4 messages");
+        Assertions.assertSame(message2, messagesReceived.remove(0), "Expecting received1 === message2");
+        Assertions.assertSame(message4, messagesReceived.remove(0), "Expecting received2 === message4");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received3 === message1");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received4 === message3");
+
+        // write messages in fifo mode, then one more in sort mode and flush
+        queue.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        queue.write(message1);
+        queue.write(message2);
+        queue.write(new QueueControlMessage(QueueControlMessage.SORT));
+        queue.write(message3);
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test that the earlier fifo messages were sorted too
+        Assertions.assertEquals(3, messagesReceived.size(), "Expecting received 3 messages");
+        Assertions.assertSame(message2, messagesReceived.remove(0), "Expecting received1 === message2");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received2 === message1");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received3 === message3");
+    }
+
+    /**
+     * Test flushing when a downstream fitting fails or writes back.
+     * <P>
+     * Creates a queue whose output fails on one message and writes a
+     * new message back into the queue on another. Tests that FLUSH
+     * reports failure, that all buffered messages were still written,
+     * and that the message written during the flush is held until
+     * the next FLUSH.</P>
+     */
+    @Test
+    public void testFlushWithFailingAndReentrantOutput() {
+        // create messages to send to the queue
+        IPipeMessage message1 = new Message(Message.NORMAL, new Prop(1));
+        IPipeMessage message2 = new Message(Message.NORMAL, new Prop(2));
+        IPipeMessage message3 = new Message(Message.NORMAL, new Prop(3));
+        IPipeMessage late = new Message(Message.NORMAL, new Prop(4));
+
+        // create queue with an output that fails on message2 and writes back on message3
+        Queue queue = new Queue();
+        queue.connect(new Pipe() {
+            public boolean write(IPipeMessage message) {
+                messagesReceived.add(message);
+                if(message == message3) queue.write(late);
+                return message != message2;
+            }
+        });
+
+        // write messages to the queue and flush
+        queue.write(message1);
+        queue.write(message2);
+        queue.write(message3);
+        boolean flushWritten = queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test that the flush failed but all messages were written
+        Assertions.assertFalse(flushWritten, "Expecting flush reported failure");
+        Assertions.assertEquals(3, messagesReceived.size(), "Expecting received 3 messages");
+        Assertions.assertSame(message1, messagesReceived.remove(0), "Expecting received1 === message1");
+        Assertions.assertSame(message2, messagesReceived.remove(0), "Expecting received2 === message2");
+        Assertions.assertSame(message3, messagesReceived.remove(0), "Expecting received3 === message3");
+
+        // test that the message written during the flush waits for the next one
+        boolean flushWrittenAgain = queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertTrue(flushWrittenAgain, "Expecting second flush succeeded");
+        Assertions.assertEquals(1, messagesReceived.size(), "Expecting received 1 message");
+        Assertions.assertSame(late, messagesReceived.remove(0), "Expecting received1 === late");
+    }
+
+    /**
+     * Test writing a batch to the queue and flushing it as a batch.
+     * <P>
+     * Writes a batch with a FLUSH in the middle and tests that only
+     * the messages before it were written, in a single batch. Then
+     * flushes again and tests that the remaining message follows.</P>
+     */
+    @Test
+    public void testWriteBatchAndFlushBatch() {
+        // create messages to send to the queue
+        IPipeMessage message1 = new Message(Message.NORMAL, new Prop(1));
+        IPipeMessage message2 = new Message(Message.NORMAL, new Prop(2));
+        IPipeMessage message3 = new Message(Message.NORMAL, new Prop(3));
+
+        // create queue with an output that records each batch
+        ArrayList<List<IPipeMessage>> batches = new ArrayList<>();
+        Queue queue = new Queue(new Pipe() {
+            public boolean writeBatch(List<IPipeMessage> messages) {
+                batches.add(new ArrayList<>(messages));
+                return true;
+            }
+        });
+
+        // write a batch with a flush in the middle
+        List<IPipeMessage> batch = new ArrayList<>();
+        batch.add(message1);
+        batch.add(message2);
+        batch.add(new QueueControlMessage(QueueControlMessage.FLUSH));
+        batch.add(message3);
+        boolean written = queue.writeBatch(batch);
+
+        // test that the messages before the flush arrived as one batch
+        Assertions.assertTrue(written, "Expecting wrote batch to queue");
+        Assertions.assertEquals(1, batches.size(), "Expecting received 1 batch");
+        Assertions.assertEquals(2, batches.get(0).size(), "Expecting first batch has 2 messages");
+        Assertions.assertSame(message1, batches.get(0).get(0), "Expecting received1 === message1");
+        Assertions.assertSame(message2, batches.get(0).get(1), "Expecting received2 === message2");
+
+        // flush the rest
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(2, batches.size(), "Expecting received 2 batches");
+        Assertions.assertSame(message3, batches.get(1).get(0), "Expecting received3 === message3");
+    }
+
+    /**
+     * Test a bounded queue rejects messages when full and signals demand on flush.
+     */
+    @Test
+    public void testCapacityAndDemand() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+        int[] signals = {0};
+
+        // create a queue with room for 2 messages behind a filter
+        Queue queue = new Queue(new PipeListener(this, received::add), 2);
+        Filter filter = new Filter("pass", queue);
+        filter.addDemandListener(() -> signals[0]++);
+
+        // test assertions
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, filter.offer(new Message(Message.NORMAL)), "Expecting first message accepted");
+        Assertions.assertTrue(filter.write(new Message(Message.NORMAL)), "Expecting second message accepted");
+        Assertions.assertEquals(WriteOutcome.FULL, filter.offer(new Message(Message.NORMAL)), "Expecting FULL passed back through filter");
+        Assertions.assertFalse(queue.write(new Message(Message.NORMAL)), "Expecting write returns false when full");
+        Assertions.assertEquals(2, queue.getSize(), "Expecting 2 messages stored");
+        Assertions.assertEquals(0, signals[0], "Expecting no demand yet");
+
+        filter.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertEquals(2, received.size(), "Expecting received 2 messages");
+        Assertions.assertEquals(1, signals[0], "Expecting demand signalled by flush");
+        Assertions.assertEquals(WriteOutcome.ACCEPTED, filter.offer(new Message(Message.NORMAL)), "Expecting room after flush");
+    }
+
+    private Message prioritized(int priority, Object body) {
+        return new Message(Message.NORMAL, null, body, priority);
+    }
+
+    /**
+     * Test the drop oldest and drop lowest priority overflow policies.
+     */
+    @Test
+    public void testDropOverflowPolicies() {
+        ArrayList<Object> received = new ArrayList<>();
+
+        // drop oldest in fifo mode
+        Queue oldest = new Queue(new PipeListener(this, message -> received.add(message.getBody())), 2);
+        oldest.setOverflowPolicy(Queue.OVERFLOW_DROP_OLDEST);
+        oldest.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        for(int i = 1; i <= 4; i++) Assertions.assertTrue(oldest.write(prioritized(Message.PRIORITY_MED, i)), "Expecting accepted");
+        oldest.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertArrayEquals(new Object[]{3, 4}, received.toArray(), "Expecting oldest dropped");
+        Assertions.assertEquals(2, oldest.getDroppedOldestCount(), "Expecting 2 dropped oldest");
+
+        // drop lowest priority in sort mode
+        received.clear();
+        Queue lowest = new Queue(new PipeListener(this, message -> received.add(message.getBody())), 3);
+        lowest.setOverflowPolicy(Queue.OVERFLOW_DROP_LOWEST);
+        lowest.write(prioritized(Message.PRIORITY_LOW, "low1"));
+        lowest.write(prioritized(Message.PRIORITY_HIGH, "high1"));
+        lowest.write(prioritized(Message.PRIORITY_LOW, "low2"));
+        Assertions.assertTrue(lowest.write(prioritized(Message.PRIORITY_MED, "med")), "Expecting med replaces newest low");
+        Assertions.assertEquals(WriteOutcome.DROPPED, lowest.offer(prioritized(Message.PRIORITY_LOW, "low3")), "Expecting new lowest message dropped");
+        lowest.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertArrayEquals(new Object[]{"high1", "med", "low1"}, received.toArray(), "Expecting lowest priority dropped");
+        Assertions.assertEquals(2, lowest.getDroppedLowestCount(), "Expecting 2 dropped lowest");
+    }
+
+    /**
+     * Test dropping lowest priority messages does not grow the arrivals without bound.
+     */
+    @Test
+    public void testDropLowestCompactsArrivals() {
+        ArrayList<Object> received = new ArrayList<>();
+
+        // create a queue that keeps the 4 most urgent messages
+        Queue queue = new Queue(new PipeListener(this, message -> received.add(message.getBody())), 4);
+        queue.setOverflowPolicy(Queue.OVERFLOW_DROP_LOWEST);
+
+        // write messages each more urgent than the last, so every one drops a stored message
+        for(int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(queue.write(prioritized(1000 - i, i)), "Expecting message stored");
+        }
+
+        // test assertions
+        Assertions.assertEquals(4, queue.getSize(), "Expecting 4 messages stored");
+        Assertions.assertEquals(996, queue.getDroppedLowestCount(), "Expecting 996 dropped lowest");
+        Assertions.assertTrue(queue.arrivals.size() <= 8, "Expecting arrivals compacted");
+        queue.setOverflowPolicy(Queue.OVERFLOW_DROP_OLDEST);
+        queue.write(prioritized(1, "newest"));
+        queue.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertArrayEquals(new Object[]{999, "newest", 998, 997}, received.toArray(), "Expecting oldest stored message dropped");
+    }
+
+    /**
+     * Test the block and spill overflow policies.
+     */
+    @Test
+    public void testBlockAndSpillOverflowPolicies() throws InterruptedException {
+        ArrayList<Object> received = new ArrayList<>();
+        PipeListener listener = new PipeListener(this, message -> received.add(message.getBody()));
+
+        // block until another thread flushes
+        Queue blocking = new Queue(listener, 1);
+        blocking.setOverflowPolicy(Queue.OVERFLOW_BLOCK);
+        blocking.setBlockTimeout(10, TimeUnit.MILLISECONDS);
+        blocking.write(prioritized(Message.PRIORITY_MED, 1));
+        Assertions.assertFalse(blocking.write(prioritized(Message.PRIORITY_MED, 2)), "Expecting timed out");
+        blocking.setBlockTimeout(10, TimeUnit.SECONDS);
+        Thread flusher = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException exception) {
+                return;
+            }
+            blocking.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        });
+        flusher.start();
+        Assertions.assertTrue(blocking.write(prioritized(Message.PRIORITY_MED, 3)), "Expecting stored after flush");
+        flusher.join();
+        Assertions.assertEquals(2, blocking.getBlockedCount(), "Expecting 2 blocked writers");
+        Assertions.assertEquals(1, blocking.getTimedOutCount(), "Expecting 1 timed out writer");
+        Assertions.assertEquals(1, blocking.getSize(), "Expecting 1 message stored");
+
+        // spill to a second queue connected to the same output
+        received.clear();
+        Queue spilling = new Queue(listener, 1);
+        spilling.setOverflowPolicy(Queue.OVERFLOW_SPILL);
+        spilling.setSpill(new Queue(listener));
+        spilling.write(new QueueControlMessage(QueueControlMessage.FIFO));
+        for(int i = 1; i <= 3; i++) Assertions.assertTrue(spilling.write(prioritized(Message.PRIORITY_MED, i)), "Expecting accepted");
+        spilling.write(new QueueControlMessage(QueueControlMessage.FLUSH));
+        Assertions.assertArrayEquals(new Object[]{1, 2, 3}, received.toArray(), "Expecting spilled messages after stored ones");
+        Assertions.assertEquals(2, spilling.getSpilledCount(), "Expecting 2 spilled");
+    }
+
+    /**
+     * Test the message count, byte and time auto-flush triggers.
+     */
+    @Test
+    public void testAutoFlush() throws InterruptedException {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // flush on 3 messages
+        Queue counted = new Queue(new PipeListener(this, received::add));
+        counted.setAutoFlush(3, 0, 0, TimeUnit.MILLISECONDS);
+        counted.write(new Message(Message.NORMAL));
+        counted.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(0, received.size(), "Expecting nothing flushed yet");
+        counted.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(3, received.size(), "Expecting flushed on third message");
+
+        // flush on 250 bytes, counting 100 per message
+        received.clear();
+        Queue sized = new Queue(new PipeListener(this, received::add));
+        sized.setMessageSizer(message -> 100);
+        sized.setAutoFlush(0, 250, 0, TimeUnit.MILLISECONDS);
+        sized.write(new Message(Message.NORMAL));
+        sized.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(0, received.size(), "Expecting nothing flushed yet");
+        sized.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(3, received.size(), "Expecting flushed at 300 bytes");
+
+        // flush 20 ms after the first message
+        CountDownLatch flushed = new CountDownLatch(2);
+        Queue timed = new Queue(new PipeListener(this, message -> flushed.countDown()));
+        timed.setAutoFlush(0, 0, 20, TimeUnit.MILLISECONDS);
+        timed.write(new Message(Message.NORMAL));
+        timed.write(new Message(Message.NORMAL));
+        Assertions.assertEquals(2, timed.getSize(), "Expecting 2 messages stored");
+
+        // test assertions
+        Assertions.assertTrue(flushed.await(5, TimeUnit.SECONDS), "Expecting timed flush");
+        Assertions.assertEquals(0, timed.getSize(), "Expecting queue empty after timed flush");
+    }
+
+    /**
+     * Test a timed flush runs on the flush executor, not the scheduler thread.
+     */
+    @Test
+    public void testTimedFlushOnExecutor() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "flusher"));
+        CountDownLatch flushed = new CountDownLatch(1);
+        String[] thread = {null};
+
+        // create a queue flushed 10 ms after the first message on the executor
+        Queue timed = new Queue(new PipeListener(this, message -> {
+            thread[0] = Thread.currentThread().getName();
+            flushed.countDown();
+        }));
+        timed.setFlushExecutor(executor);
+        timed.setAutoFlush(0, 0, 10, TimeUnit.MILLISECONDS);
+        timed.write(new Message(Message.NORMAL));
+
+        // test assertions
+        Assertions.assertTrue(flushed.await(5, TimeUnit.SECONDS), "Expecting timed flush");
+        Assertions.assertEquals("flusher", thread[0], "Expecting flush delivered on the executor");
+
+        // a rejected flush runs on the next write
+        executor.shutdown();
+        CountDownLatch rejected = new CountDownLatch(1);
+        Queue fallback = new Queue(new PipeListener(this, message -> rejected.countDown()));
+        fallback.setFlushExecutor(executor);
+        fallback.setAutoFlush(0, 0, 10, TimeUnit.MILLISECONDS);
+        fallback.write(new Message(Message.NORMAL));
+        Thread.sleep(50);
+        Assertions.assertEquals(1, fallback.getSize(), "Expecting rejected flush left pending");
+        fallback.write(new Message(Message.NORMAL));
+        Assertions.assertTrue(rejected.await(5, TimeUnit.SECONDS), "Expecting flush on next write");
+        Assertions.assertEquals(0, fallback.getSize(), "Expecting queue empty");
+    }
+
+    /**
+     * Test the auto-flush triggers fire within a batch as they do for single writes.
+     */
+    @Test
+    public void testAutoFlushWithinBatch() {
+        List<IPipeMessage> batch = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            batch.add(new Message(Message.NORMAL, i));
+        }
+
+        // create bounded queues flushing on 5 messages, and on 500 bytes counting 100 per message
+        ArrayList<IPipeMessage> single = new ArrayList<>();
+        ArrayList<IPipeMessage> batched = new ArrayList<>();
+        ArrayList<IPipeMessage> sized = new ArrayList<>();
+        Queue singleQueue = new Queue(new PipeListener(this, single::add), 5);
+        singleQueue.setAutoFlush(5, 0, 0, TimeUnit.MILLISECONDS);
+        Queue batchQueue = new Queue(new PipeListener(this, batched::add), 5);
+        batchQueue.setAutoFlush(5, 0, 0, TimeUnit.MILLISECONDS);
+        Queue sizedQueue = new Queue(new PipeListener(this, sized::add), 5);
+        sizedQueue.setMessageSizer(message -> 100);
+        sizedQueue.setAutoFlush(0, 500, 0, TimeUnit.MILLISECONDS);
+
+        // write the messages one at a time and as batches
+        boolean singleSuccess = true;
+        for(IPipeMessage message : batch) {
+            singleSuccess = singleQueue.write(message) && singleSuccess;
+        }
+        boolean batchSuccess = batchQueue.writeBatch(batch);
+        boolean sizedSuccess = sizedQueue.writeBatch(batch);
+
+        // test assertions
+        Assertions.assertTrue(singleSuccess, "Expecting single writes accepted");
+        Assertions.assertTrue(batchSuccess, "Expecting batch accepted");
+        Assertions.assertTrue(sizedSuccess, "Expecting sized batch accepted");
+        Assertions.assertEquals(batch, single, "Expecting all single writes flushed in order");
+        Assertions.assertEquals(single, batched, "Expecting batch flushed as single writes");
+        Assertions.assertEquals(single, sized, "Expecting byte trigger flushed within batch");
+        Assertions.assertEquals(0, batchQueue.getSize(), "Expecting batch queue empty");
+    }
+
     /**
      * Array of received messages.
      * <P>
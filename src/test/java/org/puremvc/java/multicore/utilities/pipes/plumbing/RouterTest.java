@@ -0,0 +1,81 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Headers;
+import org.puremvc.java.multicore.utilities.pipes.messages.ImmutableMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+
+import java.util.ArrayList;
+
+/**
+ * Test the Router class.
+ */
+public class RouterTest {
+
+    private static final Headers.Key<String> REGION = Headers.key("region", String.class);
+
+    /**
+     * Test routing by header, the default route and changing routes.
+     */
+    @Test
+    public void testRouting() {
+        ArrayList<IPipeMessage> east = new ArrayList<>();
+        ArrayList<IPipeMessage> west = new ArrayList<>();
+        ArrayList<IPipeMessage> other = new ArrayList<>();
+
+        // create router by header with two routes and a default
+        Router router = new Router(Router.HEADER, new PipeListener(this, other::add));
+        router.addRoute("east", new PipeListener(this, east::add));
+        router.addRoute("west", new PipeListener(this, west::add));
+
+        // test assertions
+        Assertions.assertTrue(router.write(new Message(Message.NORMAL, "east")), "Expecting routed to east");
+        Assertions.assertTrue(router.write(new Message(Message.NORMAL, "west")), "Expecting routed to west");
+        Assertions.assertTrue(router.write(new Message(Message.NORMAL, "north")), "Expecting routed to default");
+        Assertions.assertEquals(1, east.size(), "Expecting 1 east message");
+        Assertions.assertEquals(1, west.size(), "Expecting 1 west message");
+        Assertions.assertEquals(1, other.size(), "Expecting 1 default message");
+
+        // remove a route and the default
+        router.removeRoute("west");
+        router.disconnect();
+        Assertions.assertFalse(router.write(new Message(Message.NORMAL, "west")), "Expecting no route for west");
+        Assertions.assertEquals(1, west.size(), "Expecting west route removed");
+    }
+
+    /**
+     * Test routing by typed header, control messages and batches.
+     */
+    @Test
+    public void testTypedHeaderAndBatches() {
+        ArrayList<Object> east = new ArrayList<>();
+        ArrayList<Object> west = new ArrayList<>();
+
+        // create router by typed header, in front of queues
+        Router router = new Router(Router.byHeader(REGION));
+        router.addRoute("east", new Queue(new PipeListener(this, message -> east.add(message.getBody()))));
+        router.addRoute("west", new Queue(new PipeListener(this, message -> west.add(message.getBody()))));
+
+        ArrayList<IPipeMessage> batch = new ArrayList<>();
+        batch.add(new ImmutableMessage(Message.NORMAL, Headers.EMPTY.with(REGION, "east"), 1));
+        batch.add(new ImmutableMessage(Message.NORMAL, Headers.EMPTY.with(REGION, "west"), 2));
+        batch.add(new ImmutableMessage(Message.NORMAL, Headers.EMPTY.with(REGION, "east"), 3));
+        batch.add(new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertTrue(router.writeBatch(batch), "Expecting wrote batch");
+        Assertions.assertArrayEquals(new Object[]{1, 3}, east.toArray(), "Expecting east messages flushed in order");
+        Assertions.assertArrayEquals(new Object[]{2}, west.toArray(), "Expecting west message flushed");
+    }
+
+}
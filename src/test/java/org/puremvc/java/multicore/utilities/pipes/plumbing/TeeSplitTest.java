@@ -14,6 +14,12 @@ import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
 import org.puremvc.java.multicore.utilities.pipes.messages.Message;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test the TeeSplit class.
@@ -165,6 +171,87 @@ public class TeeSplitTest {
         Assertions.assertEquals(message, message2, "Expecting message2 === message");
     }
 
+    /**
+     * Test parallel fan-out.
+     * <P>
+     * Connects outputs that each wait until all of them have been
+     * entered, which can only finish if they run at the same time.
+     * Tests that the waiting write combines the branch results, then
+     * that a non-waiting write returns before the branches finish.</P>
+     */
+    @Test
+    public void testParallelFanOut() throws InterruptedException {
+        final int width = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(width);
+        List<IPipeMessage> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch[] entered = {new CountDownLatch(width)};
+
+        // create splitting tee with outputs that meet at a latch, the last one failing
+        TeeSplit teeSplit = new TeeSplit();
+        teeSplit.setExecutor(executor, true);
+        for(int i = 0; i < width; i++) {
+            final boolean result = i < width - 1;
+            teeSplit.connect(new Pipe() {
+                public boolean write(IPipeMessage message) {
+                    entered[0].countDown();
+                    try {
+                        if(!entered[0].await(10, TimeUnit.SECONDS)) return false;
+                    } catch (InterruptedException exception) {
+                        return false;
+                    }
+                    received.add(message);
+                    return result;
+                }
+            });
+        }
+
+        // write waiting for all branches
+        boolean written = teeSplit.write(new Message(Message.NORMAL));
+
+        // test that all branches ran together and the failure was combined
+        Assertions.assertFalse(written, "Expecting write reports the failed branch");
+        Assertions.assertEquals(width, received.size(), "Expecting all branches received the message");
+
+        // write without waiting, with the branches held at a fresh latch
+        received.clear();
+        entered[0] = new CountDownLatch(width + 1);
+        teeSplit.setExecutor(executor, false);
+        boolean accepted = teeSplit.write(new Message(Message.NORMAL));
+
+        // test that the write returned before the branches finished
+        Assertions.assertTrue(accepted, "Expecting write accepted by the executor");
+        Assertions.assertEquals(0, received.size(), "Expecting no branch finished yet");
+        entered[0].countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Expecting executor terminated");
+        Assertions.assertEquals(width, received.size(), "Expecting all branches received the message");
+    }
+
+    /**
+     * Test branches not waited for are given their own copy of a batch.
+     */
+    @Test
+    public void testParallelBatchCopied() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<IPipeMessage> received = new ArrayList<>();
+
+        // create splitting tee whose executor holds the branches until run
+        TeeSplit teeSplit = new TeeSplit(new PipeListener(this, received::add), new PipeListener(this, received::add));
+        teeSplit.setExecutor(tasks::add, false);
+
+        // write a batch, then reuse the caller's list before the branches run
+        List<IPipeMessage> batch = new ArrayList<>();
+        batch.add(new Message(Message.NORMAL));
+        batch.add(new Message(Message.NORMAL));
+        Assertions.assertTrue(teeSplit.writeBatch(batch), "Expecting batch accepted by the executor");
+        batch.clear();
+        tasks.forEach(Runnable::run);
+
+        // test assertions
+        Assertions.assertEquals(2, tasks.size(), "Expecting a task per branch");
+        Assertions.assertEquals(4, received.size(), "Expecting each branch received the whole batch");
+    }
+
     /**
      * Array of received messages.
      * <P>
@@ -183,4 +270,22 @@ public class TeeSplitTest {
     private void callBackMethod(IPipeMessage message) {
         messagesReceived.add(message);
     }
+
+    /**
+     * Test disconnectFitting skips a null output.
+     */
+    @Test
+    public void testDisconnectFittingWithNullOutput() {
+        // create a TeeSplit with a null output before a pipe
+        TeeSplit teeSplit = new TeeSplit();
+        Pipe pipe = new Pipe();
+        teeSplit.connect(null);
+        teeSplit.connect(pipe);
+
+        // test assertions
+        Assertions.assertSame(pipe, teeSplit.disconnectFitting(pipe), "Expecting teeSplit.disconnectFitting(pipe) === pipe");
+        Assertions.assertNull(teeSplit.disconnectFitting(pipe), "Expecting pipe no longer connected");
+        Assertions.assertNull(teeSplit.disconnect(), "Expecting the null output left");
+        Assertions.assertNull(teeSplit.disconnect(), "Expecting no outputs left");
+    }
 }
@@ -0,0 +1,87 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.ITelemetryMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+import org.puremvc.java.multicore.utilities.pipes.messages.QueueControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.TelemetryMessage;
+
+/**
+ * Test the TelemetryMessage class.
+ */
+public class TelemetryMessageTest {
+
+    private class Scale {
+        public double factor;
+
+        public Scale(double factor) {
+            this.factor = factor;
+        }
+    }
+
+    /**
+     * Tests the constructors and primitive accessors.
+     */
+    @Test
+    public void testAccessors() {
+        // create messages
+        TelemetryMessage sample = new TelemetryMessage(1000L, 1.5, 2.5);
+        TelemetryMessage counters = TelemetryMessage.withCapacity(2000L, 0, 2);
+        counters.setLong(1, 42L);
+        TelemetryMessage ints = new TelemetryMessage(3000L, 1, 2);
+
+        // test assertions
+        Assertions.assertEquals(Message.NORMAL, sample.getType(), "Expecting sample.getType() == Message.NORMAL");
+        Assertions.assertEquals(1000L, sample.getTimestamp(), "Expecting sample.getTimestamp() == 1000");
+        Assertions.assertEquals(2, sample.getDoubleCount(), "Expecting 2 doubles");
+        Assertions.assertEquals(2.5, sample.getDouble(1), "Expecting sample.getDouble(1) == 2.5");
+        Assertions.assertEquals(0, sample.getLongCount(), "Expecting 0 longs");
+        Assertions.assertEquals(2, counters.getLongCount(), "Expecting 2 longs");
+        Assertions.assertEquals(42L, counters.getLong(1), "Expecting counters.getLong(1) == 42");
+        Assertions.assertEquals(2, ints.getDoubleCount(), "Expecting int values stored as 2 doubles");
+        Assertions.assertEquals(2.0, ints.getDouble(1), "Expecting ints.getDouble(1) == 2.0");
+    }
+
+    /**
+     * Tests a telemetry pipeline from a Junction through a Filter and a Queue to a PipeListener.
+     * <P>
+     * The filter scales the doubles in place through the primitive
+     * accessors, the queue buffers the samples until flushed, and
+     * the listener sums them.</P>
+     */
+    @Test
+    public void testTelemetryPipeline() {
+        final double[] sum = {0};
+
+        // build junction -> filter -> queue -> listener
+        Queue queue = new Queue(new PipeListener(this, message -> {
+            ITelemetryMessage sample = (ITelemetryMessage)message;
+            for(int i = 0; i < sample.getDoubleCount(); i++) sum[0] += sample.getDouble(i);
+        }));
+        Filter filter = new Filter("scale", queue, (message, params) -> {
+            ITelemetryMessage sample = (ITelemetryMessage)message;
+            for(int i = 0; i < sample.getDoubleCount(); i++) sample.setDouble(i, sample.getDouble(i) * ((Scale)params).factor);
+        }, new Scale(10));
+        Junction junction = new Junction();
+        junction.registerPipe("telemetry", Junction.OUTPUT, filter);
+
+        // send samples in fifo mode and flush
+        junction.sendMessage("telemetry", new QueueControlMessage(QueueControlMessage.FIFO));
+        junction.sendMessage("telemetry", new TelemetryMessage(1L, 1.0, 2.0));
+        junction.sendMessage("telemetry", new TelemetryMessage(2L, 3.0));
+        Assertions.assertEquals(0.0, sum[0], "Expecting samples queued");
+        junction.sendMessage("telemetry", new QueueControlMessage(QueueControlMessage.FLUSH));
+
+        // test assertions
+        Assertions.assertEquals(60.0, sum[0], "Expecting scaled samples summed");
+    }
+
+}
@@ -0,0 +1,94 @@
+//
+//  PureMVC Java Multicore Utility - Pipes
+//
+//  Copyright(c) 2020 Saad Shams <saad.shams@puremvc.org>
+//  Your reuse is governed by the Creative Commons Attribution 3.0 License
+//
+
+package org.puremvc.java.multicore.utilities.pipes.plumbing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.IPipeMessage;
+import org.puremvc.java.multicore.utilities.pipes.interfaces.WriteOutcome;
+import org.puremvc.java.multicore.utilities.pipes.messages.FilterControlMessage;
+import org.puremvc.java.multicore.utilities.pipes.messages.Message;
+
+import java.util.ArrayList;
+
+/**
+ * Test the TransformFilter class.
+ */
+public class TransformFilterTest {
+
+    /**
+     * Test passing, dropping and replacing messages.
+     */
+    @Test
+    public void testPassDropAndReplace() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // create a filter that drops odd bodies and replaces negative ones
+        TransformFilter filter = new TransformFilter("numbers", new PipeListener(this, received::add), (message, params) -> {
+            int value = (Integer)message.getBody();
+            if(value % 2 != 0) return null;
+            if(value < 0) return new Message(Message.NORMAL, null, -value);
+            return message;
+        });
+        IPipeMessage even = new Message(Message.NORMAL, null, 2);
+
+        // test assertions
+        Assertions.assertTrue(filter.write(even), "Expecting passed message written");
+        Assertions.assertTrue(filter.write(new Message(Message.NORMAL, null, 3)), "Expecting dropped message is not a failure");
+        Assertions.assertEquals(WriteOutcome.DROPPED, filter.offer(new Message(Message.NORMAL, null, 5)), "Expecting offer reports DROPPED");
+        Assertions.assertTrue(filter.write(new Message(Message.NORMAL, null, -4)), "Expecting replaced message written");
+        Assertions.assertFalse(filter.write(new Message(Message.NORMAL, null, "four")), "Expecting error is a failure");
+        Assertions.assertEquals(2, received.size(), "Expecting received 2 messages");
+        Assertions.assertSame(even, received.get(0), "Expecting passed message is same instance");
+        Assertions.assertEquals(4, received.get(1).getBody(), "Expecting replaced message body");
+        Assertions.assertEquals(2, filter.getDroppedCount(), "Expecting 2 dropped");
+        Assertions.assertEquals(1, filter.getErrorCount(), "Expecting 1 error");
+    }
+
+    /**
+     * Test a predicate filter with params, bypass and batches.
+     */
+    @Test
+    public void testPredicateAndControlMessages() {
+        ArrayList<IPipeMessage> received = new ArrayList<>();
+
+        // create a filter passing bodies above a threshold given as params
+        TransformFilter filter = new TransformFilter("threshold", new PipeListener(this, received::add),
+                (message, params) -> (Integer)message.getBody() > (Integer)params ? message : null, 10);
+        ArrayList<IPipeMessage> batch = new ArrayList<>();
+        batch.add(new Message(Message.NORMAL, null, 5));
+        batch.add(new Message(Message.NORMAL, null, 15));
+        batch.add(new FilterControlMessage(FilterControlMessage.SET_PARAMS, "threshold", null, 0));
+        batch.add(new Message(Message.NORMAL, null, 5));
+        filter.writeBatch(batch);
+
+        // test assertions
+        Assertions.assertEquals(2, received.size(), "Expecting 15, then 5 after lowering the threshold");
+        filter.write(new FilterControlMessage(FilterControlMessage.BYPASS, "threshold"));
+        filter.write(new Message(Message.NORMAL, null, -1));
+        Assertions.assertEquals(3, received.size(), "Expecting bypassed message passed");
+
+        TransformFilter positive = TransformFilter.fromPredicate("positive", new PipeListener(this, received::add), message -> (Integer)message.getBody() > 0);
+        positive.write(new Message(Message.NORMAL, null, -1));
+        Assertions.assertEquals(1, positive.getDroppedCount(), "Expecting predicate dropped message");
+    }
+
+    /**
+     * Test a transform filter with no output drops normal messages instead of throwing.
+     */
+    @Test
+    public void testNoOutput() {
+        // create a pass-through transform filter with no output
+        TransformFilter filter = new TransformFilter("none", null, (message, params) -> message);
+
+        // test assertions
+        Assertions.assertEquals(WriteOutcome.DROPPED, filter.offer(new Message(Message.NORMAL)), "Expecting DROPPED with no output");
+        Assertions.assertFalse(filter.write(new Message(Message.NORMAL)), "Expecting write fails with no output");
+    }
+
+}